@@ -0,0 +1,75 @@
+package com.alexkyriazis.evolution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entry point of the worker processes started by WorkerPoolEvaluator.
+ *
+ * Usage: java -cp <classpath> com.alexkyriazis.evolution.EvaluationWorker <evolver class>
+ *
+ * The worker reads requests from stdin and answers on stdout until stdin is
+ * closed. All integers are big-endian.
+ *
+ * Request: [int length][length bytes of UTF-8 encoded DNA]
+ * Response: [int fitness]
+ *
+ * Responses are written in the same order as the requests were received. Any
+ * process that speaks this protocol (for instance a native simulator) can be
+ * used in place of this class.
+ */
+public final class EvaluationWorker {
+
+	private EvaluationWorker() {
+	}
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		if (args.length != 1) {
+			System.err.println("Usage: EvaluationWorker <evolver class>");
+			System.exit(2);
+		}
+		Class<? extends Evolver> evolverType = Class.forName(args[0]).asSubclass(Evolver.class);
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+
+		// stdout carries the protocol, anything the evolver prints goes to stderr
+		System.setOut(System.err);
+
+		serve(evolverType, in, out);
+	}
+
+	static void serve(Class<? extends Evolver> evolverType, DataInputStream in, DataOutputStream out) throws IOException {
+		byte[] buffer = new byte[1024];
+
+		while (true) {
+			int length;
+			try {
+				length = in.readInt();
+			} catch (EOFException e) {
+				break;
+			}
+			if (length > buffer.length) {
+				buffer = new byte[length];
+			}
+			in.readFully(buffer, 0, length);
+
+			Evolver evolver = Evolution.createEvolver(evolverType, new String(buffer, 0, length, StandardCharsets.UTF_8));
+			evolver.simulateLife();
+			out.writeInt(evolver.getFitness());
+
+			// only flush once the pipelined requests have been drained
+			if (in.available() == 0) {
+				out.flush();
+			}
+		}
+		out.flush();
+	}
+}
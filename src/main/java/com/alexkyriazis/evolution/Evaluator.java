@@ -0,0 +1,20 @@
+package com.alexkyriazis.evolution;
+
+import java.util.List;
+
+public interface Evaluator {
+
+	/**
+	 * Brings the fitness of every evolver in the given list up to date with
+	 * its DNA.
+	 * 
+	 * Evaluators are free to compute fitness wherever they like (in this
+	 * thread, in other threads or in other processes), but every evolver must
+	 * report its new fitness through getFitness() once this method returns.
+	 * 
+	 * @param generation:
+	 *            the evolvers to evaluate. The order of the list is not
+	 *            modified.
+	 */
+	void evaluate(List<? extends Evolver> generation);
+}
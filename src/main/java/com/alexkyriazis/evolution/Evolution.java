@@ -4,12 +4,10 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 public class Evolution {
-	private double defaultSurvivalConstant = 0.5;
-	private double defaultIndividualMutationRate = 0.5;
-	private double defaultDnaMutationRate = 0.02;
-	private double defaultCrossoverRate = 1;
+	private EvolutionParameters defaultParameters = EvolutionParameters.DEFAULT;
 	
 	private List<Evolver> currentGeneration = new ArrayList<Evolver>();
 	private int generationCount = 0;
@@ -17,6 +15,12 @@ public class Evolution {
 	private double savedSurvivalDistribution[];
 
 	private Class<? extends Evolver> evolverType;
+	private Evaluator evaluator;
+	private RunLog runLog;
+	private Random random;
+	// set by control threads while evolve() runs
+	private volatile int hallOfFameSize = 10;
+	private volatile GenerationSnapshot snapshot;
 
 	private static Comparator<Evolver> FitnessComparator = new Comparator<Evolver>() {
 		public int compare(Evolver e1, Evolver e2) {
@@ -47,11 +51,62 @@ public class Evolution {
 	 *            mutation of it.
 	 */
 	public Evolution(Class<? extends Evolver> evolverType, int popSize, String startingDna) {
+		this(evolverType, popSize, startingDna, new InProcessEvaluator());
+	}
+
+	/**
+	 * Creates the evolution system, evaluating fitness with the given
+	 * evaluator. The first generation is already evaluated with it.
+	 * 
+	 * @param evolverType:
+	 *            The class type to evolve. Must extend Evolver.
+	 * 
+	 * @param popSize:
+	 * 			  The number of individuals in each generation. Musts be larger than 0.
+	 * 
+	 * @param startingDna:
+	 *            The DNA that the first generation evolves off of.
+	 * 
+	 * @param evaluator:
+	 *            Computes the fitness of each generation, e.g. a
+	 *            WorkerPoolEvaluator.
+	 */
+	public Evolution(Class<? extends Evolver> evolverType, int popSize, String startingDna, Evaluator evaluator) {
+		this(evolverType, popSize, startingDna, evaluator, null);
+	}
+
+	/**
+	 * Creates the evolution system, drawing all of its random numbers (and
+	 * those of its evolvers' mutations and crossovers) from the given source.
+	 * With a seeded Random and a deterministic fitness function, runs are
+	 * reproducible.
+	 * 
+	 * @param evolverType:
+	 *            The class type to evolve. Must extend Evolver.
+	 * 
+	 * @param popSize:
+	 * 			  The number of individuals in each generation. Musts be larger than 0.
+	 * 
+	 * @param startingDna:
+	 *            The DNA that the first generation evolves off of.
+	 * 
+	 * @param evaluator:
+	 *            Computes the fitness of each generation.
+	 * 
+	 * @param random:
+	 *            The source of randomness, or null to use Math.random().
+	 */
+	public Evolution(Class<? extends Evolver> evolverType, int popSize, String startingDna, Evaluator evaluator, Random random) {
 		if (popSize < 1) {
 			throw new IllegalArgumentException("Population size out of bounds");
 		}
+		if (evaluator == null) {
+			throw new IllegalArgumentException("Evaluator must not be null");
+		}
 		this.popSize = popSize;
 		this.evolverType = evolverType;
+		this.evaluator = evaluator;
+		this.random = random;
 		this.setup(startingDna);
 	}
 
@@ -80,16 +135,7 @@ public class Evolution {
 	 * @throws IllegalArgumentException if any parameter conditions are not met
 	 */
 	public void evolve(int numGenerations, double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
-		if (numGenerations < 0
-				|| survivalConstant < 0 || survivalConstant > 1 
-				|| individualMutationRate < 0 || individualMutationRate > 1 
-				|| dnaMutationRate < 0 || dnaMutationRate > 1 
-				|| crossOverRate < 0 || crossOverRate > 1) {
-			throw new IllegalArgumentException("Parameter(s) out of bounds");
-		}
-		for (int i = 0; i < numGenerations; i++) {
-			this.loop(survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate);
-		}
+		this.evolve(numGenerations, new EvolutionParameters(survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate));
 	}
 	
 	/**
@@ -109,7 +155,16 @@ public class Evolution {
 	 *			  CROSSOVER_RATE = 1
 	 */
 	public void evolve(int numGenerations) {
-		evolve(numGenerations,this.defaultSurvivalConstant,this.defaultIndividualMutationRate,this.defaultDnaMutationRate,this.defaultCrossoverRate);
+		this.evolve(numGenerations, this.defaultParameters);
+	}
+
+	private void evolve(int numGenerations, EvolutionParameters parameters) {
+		if (numGenerations < 0) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		for (int i = 0; i < numGenerations; i++) {
+			this.loop(parameters.survivalConstant, parameters.individualMutationRate, parameters.dnaMutationRate, parameters.crossOverRate);
+		}
 	}
 	
 	/**
@@ -133,13 +188,43 @@ public class Evolution {
 	 * Note: This is NOT a copied list. The representation invariant of the
 	 * Evolvers will still be preserved, but the Evolvers are still mutable via
 	 * mutate() and crossOver(). Excessive external mutation may delay the
-	 * progress of the algorithm.
+	 * progress of the algorithm. The list is refilled by evolve(), so it must
+	 * only be read from the evolving thread; other threads should use
+	 * getSnapshot().
 	 *
 	 * @return the list of Evolvers from the current generation.
 	 */
 	public List<? extends Evolver> getCurrentGeneration() {
 		return Collections.unmodifiableList(this.currentGeneration);
 	}
+
+	/**
+	 * Gets an immutable snapshot of the latest generation, including a hall
+	 * of fame of the fittest individuals seen so far.
+	 * 
+	 * Safe to call from any thread, at any rate, while evolve() runs. A new
+	 * snapshot is published after every generation.
+	 *
+	 * @return the snapshot of the latest generation.
+	 */
+	public GenerationSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Sets how many of the fittest individuals of all time the snapshots keep
+	 * in their hall of fame. Takes effect from the next generation, and may
+	 * be called from any thread while evolve() runs.
+	 * 
+	 * @param hallOfFameSize:
+	 *            the size of the hall of fame. Must not be negative.
+	 */
+	public void setHallOfFameSize(int hallOfFameSize) {
+		if (hallOfFameSize < 0) {
+			throw new IllegalArgumentException("Hall of fame size out of bounds");
+		}
+		this.hallOfFameSize = hallOfFameSize;
+	}
 	/**
 	 * Sets the parameters that will be called by default when evolve(int numGenerations) is called.
 	 * 
@@ -160,18 +245,38 @@ public class Evolution {
 	 * @throws IllegalArgumentException if any parameter conditions are not met
 	 */
 	public void setDefaultEvolutionParameters(double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
-		if (survivalConstant < 0 || survivalConstant > 1 
-				|| individualMutationRate < 0 || individualMutationRate > 1 
-				|| dnaMutationRate < 0 || dnaMutationRate > 1 
-				|| crossOverRate < 0 || crossOverRate > 1) {
-			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		this.defaultParameters = new EvolutionParameters(survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate);
+	}
+	/**
+	 * Sets the evaluator used to compute the fitness of every following
+	 * generation.
+	 * 
+	 * @param evaluator:
+	 *            the evaluator to use. Must not be null.
+	 */
+	public void setEvaluator(Evaluator evaluator) {
+		if (evaluator == null) {
+			throw new IllegalArgumentException("Evaluator must not be null");
 		}
-		
-		this.defaultSurvivalConstant = survivalConstant;
-		this.defaultIndividualMutationRate = dnaMutationRate;
-		this.defaultDnaMutationRate = dnaMutationRate;
-		this.defaultCrossoverRate = crossOverRate;
+		this.evaluator = evaluator;
 	}
+
+	/**
+	 * Sets a run log that records every following generation. The current
+	 * generation is recorded right away.
+	 * 
+	 * The run log is not closed by the evolution.
+	 * 
+	 * @param runLog:
+	 *            the log to write to, or null to stop logging.
+	 */
+	public void setRunLog(RunLog runLog) {
+		this.runLog = runLog;
+		if (runLog != null) {
+			runLog.logGeneration(this.generationCount, this.currentGeneration);
+		}
+	}
+
 	/**
 	 * Prints DNA and Fitness data about a population of evolvers.
 	 * 
@@ -192,6 +297,7 @@ public class Evolution {
 
 		for (int i = 0; i < this.popSize; i++) {
 			Evolver individual = Evolution.createEvolver(this.evolverType, dna);
+			individual.random = this.random;
 			individual.mutate(1, false);
 			this.currentGeneration.add(individual);
 		}
@@ -202,13 +308,15 @@ public class Evolution {
 		List<Evolver> newGen = breedNewGeneration(this.currentGeneration, survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate );
 		this.createNewGeneration(newGen);
 		this.simulateGeneration(this.currentGeneration);
+		if (this.runLog != null) {
+			this.runLog.logGeneration(this.generationCount, this.currentGeneration);
+		}
 	}
 
 	private void simulateGeneration(List<Evolver> generation) {
-		for (Evolver evolver : generation) {
-			evolver.simulateLife();
-		}
+		this.evaluator.evaluate(generation);
 		Collections.sort(generation, FitnessComparator);
+		this.snapshot = new GenerationSnapshot(this.generationCount, generation, this.snapshot, this.hallOfFameSize);
 	}
 
 	private void createNewGeneration(List<Evolver> generation) {
@@ -221,14 +329,25 @@ public class Evolution {
 		List<Evolver> newPop = new ArrayList<Evolver>();
 		
 		double[] probDist = this.getSurvivalProbabilities(survivalConstant);
+		// the constructor gets the real DNA, built at most once per parent
+		String[] parentDna = new String[oldGeneration.size()];
 
 		for (int i = 0; i < this.popSize; i++) {
-			double choice = Math.random();
+			double choice = this.nextRandom();
 
 			for (int j = 0; j < probDist.length; j++) {
 
 				if (choice < probDist[j]) {
-					newPop.add(Evolution.createEvolver(this.evolverType, oldGeneration.get(j).getDna()));
+					Evolver parent = oldGeneration.get(j);
+					if (parentDna[j] == null) {
+						parentDna[j] = parent.getGenome().toString();
+					}
+					Evolver child = Evolution.createEvolver(this.evolverType, parentDna[j]);
+					// share the genome rather than the copy made by the constructor
+					child.setGenome(parent.getGenome());
+					child.random = this.random;
+					child.parentRank = j;
+					newPop.add(child);
 					break;
 				}
 			}
@@ -240,26 +359,42 @@ public class Evolution {
 	}
 
 	private void crossOver(List<Evolver> population, double crossOverRate) {
-		Collections.shuffle(population);
+		this.shuffle(population);
 
 		int numPairs = (int) Math.floor(population.size() / 2.0);
 
 		for (int i = 0; i < numPairs; i++) {
-			if (Math.random() < crossOverRate) {
-				population.get(i * 2).crossOver(population.get(i * 2 + 1), false);
+			if (this.nextRandom() < crossOverRate) {
+				Evolver first = population.get(i * 2);
+				Evolver second = population.get(i * 2 + 1);
+				first.crossOver(second, false);
+				first.mateRank = second.parentRank;
+				second.mateRank = first.parentRank;
 			}
 		}
 	}
 
 	private void mutate(List<Evolver> population, double individualMutationRate, double dnaMutationRate) {
-		Collections.shuffle(population);
+		this.shuffle(population);
 		for (int i = 0; i < population.size(); i++) {
-			if (Math.random() < individualMutationRate) {
+			if (this.nextRandom() < individualMutationRate) {
 				population.get(i).mutate(dnaMutationRate, false);
 			}
 		}
 	}
 	
+	private double nextRandom() {
+		return this.random != null ? this.random.nextDouble() : Math.random();
+	}
+
+	private void shuffle(List<Evolver> population) {
+		if (this.random != null) {
+			Collections.shuffle(population, this.random);
+		} else {
+			Collections.shuffle(population);
+		}
+	}
+
 	private double[] getSurvivalProbabilities(double survivalConstant) {
 		
 		if (this.savedSurvivalDistribution != null && this.savedSurvivalDistribution[0] == survivalConstant) {return this.savedSurvivalDistribution;}
@@ -279,7 +414,7 @@ public class Evolution {
 		return probDist;
 	}
 
-	private static Evolver createEvolver(Class<? extends Evolver> evolverType, String dna) {
+	static Evolver createEvolver(Class<? extends Evolver> evolverType, String dna) {
 		if (!Evolver.class.isAssignableFrom(evolverType)) {
 			throw new UnsupportedOperationException("Trying to create a non-evolver class");
 		}
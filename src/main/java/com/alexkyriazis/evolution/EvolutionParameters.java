@@ -0,0 +1,33 @@
+package com.alexkyriazis.evolution;
+
+/**
+ * The parameters of a call to evolve(), shared by Evolution and
+ * MappedEvolution so that both check and default them the same way. See
+ * Evolution.evolve() for what each of them means.
+ */
+final class EvolutionParameters {
+
+	static final EvolutionParameters DEFAULT = new EvolutionParameters(0.5, 0.5, 0.02, 1);
+
+	final double survivalConstant;
+	final double individualMutationRate;
+	final double dnaMutationRate;
+	final double crossOverRate;
+
+	/**
+	 * @throws IllegalArgumentException if any parameter is not between 0 and
+	 *             1 (inclusive)
+	 */
+	EvolutionParameters(double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
+		if (survivalConstant < 0 || survivalConstant > 1
+				|| individualMutationRate < 0 || individualMutationRate > 1
+				|| dnaMutationRate < 0 || dnaMutationRate > 1
+				|| crossOverRate < 0 || crossOverRate > 1) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		this.survivalConstant = survivalConstant;
+		this.individualMutationRate = individualMutationRate;
+		this.dnaMutationRate = dnaMutationRate;
+		this.crossOverRate = crossOverRate;
+	}
+}
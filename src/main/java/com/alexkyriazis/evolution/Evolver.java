@@ -1,14 +1,23 @@
 package com.alexkyriazis.evolution;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 public abstract class Evolver {
 
 	private Map<Character, Action> actionMap = new HashMap<Character, Action>();
-	private String dna;
+	private Genome genome;
 	private int fitness = 0;
 
+	// set by Evolution when it was given a source of randomness
+	Random random;
+
+	// ranks in the previous generation, kept by Evolution for the run log
+	int parentRank = -1;
+	int mateRank = -1;
+
 	protected interface Action {
 		void act();
 	}
@@ -23,7 +32,7 @@ public abstract class Evolver {
 	 *            The DNA of this individual
 	 */
 	public Evolver(String dna) {
-		this.dna = dna;
+		this.genome = Genome.of(dna);
 		this.defineBehaviour();
 	}
 
@@ -32,10 +41,14 @@ public abstract class Evolver {
 	 * 
 	 * This value is mutable and could change between successive calls.
 	 * 
+	 * Note: once the DNA has been through crossover or mutation, each call
+	 * builds a new String of the full DNA length. Keep the result rather than
+	 * calling this repeatedly for long DNA.
+	 * 
 	 * @return the current string representation of the DNA.
 	 */
 	public String getDna() {
-		return this.dna;
+		return this.genome.toString();
 	}
 
 	/**
@@ -94,22 +107,33 @@ public abstract class Evolver {
 	 */
 	public void mutate(double mutationRate, Boolean shouldUpdateAfter) {
 
-		StringBuffer sb = new StringBuffer(this.dna);
-		Character[] dnaBases = actionMap.keySet().toArray(new Character[actionMap.keySet().size()]);
+		Character[] dnaBases = this.getBases();
+		int length = this.genome.length();
+		int[] positions = new int[16];
+		char[] newBases = new char[16];
+		int count = 0;
 
-		for (int i = 0; i < sb.length(); i++) {
-			if (Math.random() < mutationRate) {
-				Character toReplace = sb.charAt(i);
-				Character newChar;
-				do {
-					newChar = dnaBases[(int) (Math.random() * dnaBases.length)];
-				} while (toReplace.equals(newChar));
+		// jump straight to the next base that rolls a mutation instead of rolling for every base
+		double logSurvival = Math.log(1 - mutationRate);
+		for (double i = this.nextMutation(-1, logSurvival); i < length; i = this.nextMutation(i, logSurvival)) {
+			Character toReplace = this.genome.charAt((int) i);
+			Character newChar;
+			do {
+				newChar = dnaBases[(int) (this.nextRandom() * dnaBases.length)];
+			} while (toReplace.equals(newChar));
 
-				sb.replace(i, i + 1, newChar.toString());
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+				newBases = Arrays.copyOf(newBases, count * 2);
 			}
+			positions[count] = (int) i;
+			newBases[count] = newChar;
+			count++;
+		}
+		this.genome = this.genome.replace(positions, newBases, count);
+		if (shouldUpdateAfter) {
+			this.simulateLife();
 		}
-		this.setDna(sb.toString());
-		this.simulateLife();
 	}
 
 	/**
@@ -165,17 +189,21 @@ public abstract class Evolver {
 		if (this.getClass() != other.getClass()) {
 			return;
 		}
-		if (this.getDna().length() != other.getDna().length()) {
+		if (this.genome.length() != other.genome.length()) {
 			return;
 		}
 
-		int splicePoint = (int) Math.floor(Math.random() * this.getDna().length());
+		int splicePoint = (int) Math.floor(this.nextRandom() * this.genome.length());
 
-		String splice1 = this.getDna().substring(0, splicePoint) + other.getDna().substring(splicePoint);
-		String splice2 = other.getDna().substring(0, splicePoint) + this.getDna().substring(splicePoint);
+		Genome splice1 = Genome.splice(this.genome, other.genome, splicePoint);
+		Genome splice2 = Genome.splice(other.genome, this.genome, splicePoint);
 
-		this.setDna(splice1);
-		other.setDna(splice2);
+		this.genome = splice1;
+		other.genome = splice2;
+		if (shouldUpdateAfter) {
+			this.simulateLife();
+			other.simulateLife();
+		}
 	}
 
 	/**
@@ -204,27 +232,70 @@ public abstract class Evolver {
 	private void updateFitness() {
 		this.fitness = this.computeFitness();
 	}
-	
-	private void setDna(String dna) {
-		this.dna = dna;
+
+	/*
+	 * Used by evaluators that compute the fitness somewhere other than this
+	 * object (e.g. in a worker process). Behavioural state set up by the
+	 * actions is not touched.
+	 */
+	void setFitness(int fitness) {
+		this.fitness = fitness;
 	}
 	
-	private void computeDna() {
-		StringBuffer sb = new StringBuffer(this.dna);
+	/*
+	 * Genomes are immutable, so evolvers can share them. Used when breeding
+	 * so that children do not copy their parent's DNA.
+	 */
+	Genome getGenome() {
+		return this.genome;
+	}
+
+	void setGenome(Genome genome) {
+		this.genome = genome;
+	}
+
+	/*
+	 * Index of the next base to mutate after the given one. The gap between
+	 * mutations is geometrically distributed, which gives every base the same
+	 * chance to mutate as rolling a die for each of them.
+	 */
+	private double nextMutation(double previous, double logSurvival) {
+		if (logSurvival == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return previous + 1 + Math.floor(Math.log(1 - this.nextRandom()) / logSurvival);
+	}
+
+	private double nextRandom() {
+		return this.random != null ? this.random.nextDouble() : Math.random();
+	}
 
-		for (int i = 0; i < sb.length(); i++) {
-			Character base = Character.valueOf(sb.charAt(i));
+	private void computeDna() {
+		// walk the chunks of the genome so a spliced DNA is never flattened
+		this.genome.forEachChunk(new Genome.ChunkVisitor() {
+			public void visit(char[] chars, int length) {
+				for (int i = 0; i < length; i++) {
+					Character base = Character.valueOf(chars[i]);
 
-			Action action = this.actionMap.get(base);
+					Action action = Evolver.this.actionMap.get(base);
 
-			if (action != null) {
-				action.act();
-			} else {
-				System.err.println("Action: '" + base.toString() + "' Does not exist. Ignoring");
+					if (action != null) {
+						action.act();
+					} else {
+						System.err.println("Action: '" + base.toString() + "' Does not exist. Ignoring");
+					}
+				}
 			}
-		}
+		});
 	}
 	
+	/*
+	 * The characters this evolver has defined actions for.
+	 */
+	Character[] getBases() {
+		return this.actionMap.keySet().toArray(new Character[this.actionMap.size()]);
+	}
+
 	protected void defineAction(char character, Action action) {
 		this.actionMap.put(Character.valueOf(character), action);
 	}
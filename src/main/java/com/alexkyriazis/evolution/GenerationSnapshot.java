@@ -0,0 +1,166 @@
+package com.alexkyriazis.evolution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable picture of one generation of an Evolution, safe to read from
+ * any thread.
+ *
+ * Evolution publishes a new snapshot after every generation; see
+ * Evolution.getSnapshot(). A snapshot never changes after it is published, so
+ * monitoring threads can read it without locking and without slowing down
+ * the evolution.
+ *
+ * Individuals are ordered by rank: rank 0 is the fittest. Besides the
+ * generation itself, a snapshot holds a hall of fame of the fittest
+ * individuals seen in any generation so far.
+ */
+public final class GenerationSnapshot {
+
+	private final int generation;
+	private final Genome[] genomes;
+	private final int[] fitness;
+	private final List<Entry> hallOfFame;
+
+	/**
+	 * An individual in the hall of fame.
+	 */
+	public static final class Entry {
+		private final Genome genome;
+		private final int fitness;
+		private final int generation;
+
+		Entry(Genome genome, int fitness, int generation) {
+			this.genome = genome;
+			this.fitness = fitness;
+			this.generation = generation;
+		}
+
+		/**
+		 * @return the DNA of this individual.
+		 */
+		public String getDna() {
+			return this.genome.toString();
+		}
+
+		/**
+		 * @return the fitness of this individual.
+		 */
+		public int getFitness() {
+			return this.fitness;
+		}
+
+		/**
+		 * @return the generation this individual first appeared in.
+		 */
+		public int getGeneration() {
+			return this.generation;
+		}
+	}
+
+	/*
+	 * Captures a sorted generation. Only references to the immutable genomes
+	 * are copied, so this is cheap enough to do every generation.
+	 */
+	GenerationSnapshot(int generation, List<? extends Evolver> population, GenerationSnapshot previous, int hallOfFameSize) {
+		int size = population.size();
+		this.generation = generation;
+		this.genomes = new Genome[size];
+		this.fitness = new int[size];
+		for (int rank = 0; rank < size; rank++) {
+			Evolver evolver = population.get(rank);
+			this.genomes[rank] = evolver.getGenome();
+			this.fitness[rank] = evolver.getFitness();
+		}
+		this.hallOfFame = this.mergeHallOfFame(previous == null ? Collections.<Entry> emptyList() : previous.hallOfFame,
+				hallOfFameSize);
+	}
+
+	/**
+	 * @return the generation count at the time of this snapshot.
+	 */
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * @return the number of individuals in the generation.
+	 */
+	public int size() {
+		return this.fitness.length;
+	}
+
+	/**
+	 * @param rank:
+	 *            the rank of the individual, between 0 and size() - 1.
+	 *
+	 * @return the DNA of the individual with the given rank.
+	 */
+	public String getDna(int rank) {
+		return this.genomes[rank].toString();
+	}
+
+	/**
+	 * @param rank:
+	 *            the rank of the individual, between 0 and size() - 1.
+	 *
+	 * @return the fitness of the individual with the given rank.
+	 */
+	public int getFitness(int rank) {
+		return this.fitness[rank];
+	}
+
+	/**
+	 * @return the fitness of the fittest individual in the generation.
+	 */
+	public int getBestFitness() {
+		return this.fitness[0];
+	}
+
+	/**
+	 * @return the fittest individuals of all generations so far, fittest
+	 *         first. Ties are ordered by the generation they appeared in.
+	 */
+	public List<Entry> getHallOfFame() {
+		return this.hallOfFame;
+	}
+
+	/*
+	 * Merges the previous hall of fame with the top of this generation, both
+	 * already sorted. Survivors and crossovers at the ends of the DNA often
+	 * reproduce a genome that is already in, as a new object, so genomes are
+	 * compared by their bases to keep copies out of the hall of fame. On
+	 * equal fitness the older entry goes first.
+	 */
+	private List<Entry> mergeHallOfFame(List<Entry> previous, int hallOfFameSize) {
+		List<Entry> merged = new ArrayList<Entry>(hallOfFameSize);
+		int p = 0;
+		int rank = 0;
+
+		while (merged.size() < hallOfFameSize && (p < previous.size() || rank < this.fitness.length)) {
+			Entry next;
+			if (rank >= this.fitness.length
+					|| (p < previous.size() && previous.get(p).fitness >= this.fitness[rank])) {
+				next = previous.get(p++);
+			} else {
+				next = new Entry(this.genomes[rank], this.fitness[rank], this.generation);
+				rank++;
+			}
+			if (!containsGenome(merged, next.genome)) {
+				merged.add(next);
+			}
+		}
+		return Collections.unmodifiableList(merged);
+	}
+
+	private static boolean containsGenome(List<Entry> entries, Genome genome) {
+		for (Entry entry : entries) {
+			if (entry.genome.equals(genome)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,387 @@
+package com.alexkyriazis.evolution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable DNA strand stored as a rope: a balanced tree of chunks of at
+ * most CHUNK bases.
+ *
+ * Genomes share structure with the genomes they were made from. Splicing two
+ * genomes only creates the O(log n) nodes along the splice point, and
+ * replacing bases only copies the chunks that contain them. The flat String is
+ * built on every call to toString() and never kept, so a genome costs no more
+ * than its chunks; use forEachChunk() to read the bases without building it.
+ *
+ * A genome created from a String keeps just that String until a tree is
+ * needed, so wrapping DNA is free.
+ */
+final class Genome {
+
+	static final int CHUNK = 1024;
+	private static final int MIN_CHUNK = CHUNK / 4;
+
+	private final int length;
+	private Node root;
+	private final String flat;
+	private int hash;
+
+	private Genome(Node root, String flat, int length) {
+		this.root = root;
+		this.flat = flat;
+		this.length = length;
+	}
+
+	static Genome of(String dna) {
+		return new Genome(null, dna, dna.length());
+	}
+
+	int length() {
+		return this.length;
+	}
+
+	char charAt(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+		String flat = this.flat;
+		if (flat != null) {
+			return flat.charAt(index);
+		}
+		Node node = this.root();
+		while (node instanceof Branch) {
+			Branch branch = (Branch) node;
+			if (index < branch.left.length) {
+				node = branch.left;
+			} else {
+				index -= branch.left.length;
+				node = branch.right;
+			}
+		}
+		return ((Leaf) node).chars[index];
+	}
+
+	/**
+	 * Returns the first splicePoint bases of head followed by the bases of
+	 * tail from splicePoint on.
+	 */
+	static Genome splice(Genome head, Genome tail, int splicePoint) {
+		if (splicePoint < 0 || splicePoint > head.length || splicePoint > tail.length) {
+			throw new IndexOutOfBoundsException("Splice point: " + splicePoint);
+		}
+		Node root = concat(prefix(head.root(), splicePoint), suffix(tail.root(), splicePoint));
+		int length = root == null ? 0 : root.length;
+		if (root != null && root.depth > maxDepth(length)) {
+			root = rebalance(root);
+		}
+		return new Genome(root, null, length);
+	}
+
+	/**
+	 * Returns a genome with bases[i] at positions[i], for the first count
+	 * entries. Positions must be ascending.
+	 */
+	Genome replace(int[] positions, char[] bases, int count) {
+		if (count == 0) {
+			return this;
+		}
+		return new Genome(replace(this.root(), 0, positions, bases, 0, count), null, this.length);
+	}
+
+	/**
+	 * Receives the bases of a genome in order, one chunk at a time.
+	 */
+	interface ChunkVisitor {
+		/**
+		 * @param chars:
+		 *            the bases of the chunk in chars[0] to chars[length - 1].
+		 *            The array may be shared and must not be modified or kept.
+		 */
+		void visit(char[] chars, int length);
+	}
+
+	void forEachChunk(ChunkVisitor visitor) {
+		if (this.root == null && this.flat != null) {
+			char[] chunk = new char[Math.min(CHUNK, this.length)];
+			for (int start = 0; start < this.length; start += CHUNK) {
+				int end = Math.min(start + CHUNK, this.length);
+				this.flat.getChars(start, end, chunk, 0);
+				visitor.visit(chunk, end - start);
+			}
+		} else if (this.root != null) {
+			visit(this.root, visitor);
+		}
+	}
+
+	/*
+	 * Same value as the hash code of the flat String, computed from the
+	 * chunks and cached.
+	 */
+	@Override
+	public int hashCode() {
+		int hash = this.hash;
+		if (hash == 0 && this.length > 0) {
+			if (this.flat != null) {
+				hash = this.flat.hashCode();
+			} else {
+				final int[] h = new int[1];
+				this.forEachChunk(new ChunkVisitor() {
+					public void visit(char[] chars, int length) {
+						for (int i = 0; i < length; i++) {
+							h[0] = 31 * h[0] + chars[i];
+						}
+					}
+				});
+				hash = h[0];
+			}
+			this.hash = hash;
+		}
+		return hash;
+	}
+
+	/*
+	 * Genomes are equal when they hold the same bases, however they were
+	 * built. Only genomes of the same length and hash are compared base by
+	 * base, and neither is flattened to do so.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Genome)) {
+			return false;
+		}
+		final Genome other = (Genome) obj;
+		if (this.length != other.length || this.hashCode() != other.hashCode()) {
+			return false;
+		}
+		if (this.flat != null && other.flat != null) {
+			return this.flat.equals(other.flat);
+		}
+		if (other.flat != null) {
+			return other.equals(this);
+		}
+
+		// walk the chunks of this genome and the leaves of the other side by side
+		final List<Leaf> leaves = new ArrayList<Leaf>();
+		collectLeaves(other.root, leaves);
+		final int[] cursor = new int[2];
+		final boolean[] same = { true };
+		this.forEachChunk(new ChunkVisitor() {
+			public void visit(char[] chars, int length) {
+				for (int i = 0; i < length && same[0]; i++) {
+					char[] leaf = leaves.get(cursor[0]).chars;
+					same[0] = chars[i] == leaf[cursor[1]];
+					if (++cursor[1] == leaf.length) {
+						cursor[0]++;
+						cursor[1] = 0;
+					}
+				}
+			}
+		});
+		return same[0];
+	}
+
+	@Override
+	public String toString() {
+		if (this.flat != null) {
+			return this.flat;
+		}
+		char[] chars = new char[this.length];
+		if (this.root != null) {
+			flatten(this.root, chars, 0);
+		}
+		return new String(chars);
+	}
+
+	int depth() {
+		Node root = this.root();
+		return root == null ? 0 : root.depth;
+	}
+
+	private Node root() {
+		Node root = this.root;
+		if (root == null && this.length > 0) {
+			List<Node> leaves = new ArrayList<Node>();
+			for (int start = 0; start < this.length; start += CHUNK) {
+				int end = Math.min(start + CHUNK, this.length);
+				char[] chars = new char[end - start];
+				this.flat.getChars(start, end, chars, 0);
+				leaves.add(new Leaf(chars));
+			}
+			root = build(leaves, 0, leaves.size());
+			this.root = root;
+		}
+		return root;
+	}
+
+	private static Node prefix(Node node, int end) {
+		if (node == null || end == 0) {
+			return null;
+		}
+		if (end == node.length) {
+			return node;
+		}
+		if (node instanceof Leaf) {
+			char[] chars = new char[end];
+			System.arraycopy(((Leaf) node).chars, 0, chars, 0, end);
+			return new Leaf(chars);
+		}
+		Branch branch = (Branch) node;
+		if (end <= branch.left.length) {
+			return prefix(branch.left, end);
+		}
+		return concat(branch.left, prefix(branch.right, end - branch.left.length));
+	}
+
+	private static Node suffix(Node node, int start) {
+		if (node == null || start == node.length) {
+			return null;
+		}
+		if (start == 0) {
+			return node;
+		}
+		if (node instanceof Leaf) {
+			char[] chars = new char[node.length - start];
+			System.arraycopy(((Leaf) node).chars, start, chars, 0, chars.length);
+			return new Leaf(chars);
+		}
+		Branch branch = (Branch) node;
+		if (start >= branch.left.length) {
+			return suffix(branch.right, start - branch.left.length);
+		}
+		return concat(suffix(branch.left, start), branch.right);
+	}
+
+	private static Node concat(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		return new Branch(left, right);
+	}
+
+	private static Node replace(Node node, int offset, int[] positions, char[] bases, int from, int to) {
+		if (node instanceof Leaf) {
+			char[] chars = ((Leaf) node).chars.clone();
+			for (int i = from; i < to; i++) {
+				chars[positions[i] - offset] = bases[i];
+			}
+			return new Leaf(chars);
+		}
+		Branch branch = (Branch) node;
+		int boundary = offset + branch.left.length;
+		int split = from;
+		while (split < to && positions[split] < boundary) {
+			split++;
+		}
+		Node left = split > from ? replace(branch.left, offset, positions, bases, from, split) : branch.left;
+		Node right = to > split ? replace(branch.right, boundary, positions, bases, split, to) : branch.right;
+		return new Branch(left, right);
+	}
+
+	private static void flatten(Node node, char[] chars, int offset) {
+		while (node instanceof Branch) {
+			Branch branch = (Branch) node;
+			flatten(branch.left, chars, offset);
+			offset += branch.left.length;
+			node = branch.right;
+		}
+		char[] leaf = ((Leaf) node).chars;
+		System.arraycopy(leaf, 0, chars, offset, leaf.length);
+	}
+
+	private static void visit(Node node, ChunkVisitor visitor) {
+		while (node instanceof Branch) {
+			Branch branch = (Branch) node;
+			visit(branch.left, visitor);
+			node = branch.right;
+		}
+		Leaf leaf = (Leaf) node;
+		visitor.visit(leaf.chars, leaf.length);
+	}
+
+	/*
+	 * Splices add at most one level each, so the tree is rebuilt once it is
+	 * about twice as deep as a balanced one. Only nodes are rebuilt; chunks
+	 * are shared unless small neighbours can be merged.
+	 */
+	private static int maxDepth(int length) {
+		int chunks = length / MIN_CHUNK + 1;
+		return 2 * (32 - Integer.numberOfLeadingZeros(chunks)) + 4;
+	}
+
+	private static Node rebalance(Node root) {
+		List<Leaf> leaves = new ArrayList<Leaf>();
+		collectLeaves(root, leaves);
+
+		List<Node> merged = new ArrayList<Node>();
+		Leaf pending = null;
+		for (Leaf leaf : leaves) {
+			if (pending != null && (pending.length < MIN_CHUNK || leaf.length < MIN_CHUNK)
+					&& pending.length + leaf.length <= CHUNK) {
+				char[] chars = new char[pending.length + leaf.length];
+				System.arraycopy(pending.chars, 0, chars, 0, pending.length);
+				System.arraycopy(leaf.chars, 0, chars, pending.length, leaf.length);
+				pending = new Leaf(chars);
+			} else {
+				if (pending != null) {
+					merged.add(pending);
+				}
+				pending = leaf;
+			}
+		}
+		merged.add(pending);
+		return build(merged, 0, merged.size());
+	}
+
+	private static void collectLeaves(Node node, List<Leaf> leaves) {
+		while (node instanceof Branch) {
+			Branch branch = (Branch) node;
+			collectLeaves(branch.left, leaves);
+			node = branch.right;
+		}
+		leaves.add((Leaf) node);
+	}
+
+	private static Node build(List<? extends Node> nodes, int from, int to) {
+		if (to - from == 1) {
+			return nodes.get(from);
+		}
+		int middle = (from + to) >>> 1;
+		return new Branch(build(nodes, from, middle), build(nodes, middle, to));
+	}
+
+	private abstract static class Node {
+		final int length;
+		final int depth;
+
+		Node(int length, int depth) {
+			this.length = length;
+			this.depth = depth;
+		}
+	}
+
+	private static final class Leaf extends Node {
+		final char[] chars;
+
+		Leaf(char[] chars) {
+			super(chars.length, 0);
+			this.chars = chars;
+		}
+	}
+
+	private static final class Branch extends Node {
+		final Node left;
+		final Node right;
+
+		Branch(Node left, Node right) {
+			super(left.length + right.length, Math.max(left.depth, right.depth) + 1);
+			this.left = left;
+			this.right = right;
+		}
+	}
+}
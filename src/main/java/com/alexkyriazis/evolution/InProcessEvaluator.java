@@ -0,0 +1,16 @@
+package com.alexkyriazis.evolution;
+
+import java.util.List;
+
+/**
+ * The default evaluator. Simply calls simulateLife() on every evolver, one
+ * after the other, in the calling thread.
+ */
+public class InProcessEvaluator implements Evaluator {
+
+	public void evaluate(List<? extends Evolver> generation) {
+		for (Evolver evolver : generation) {
+			evolver.simulateLife();
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package com.alexkyriazis.evolution;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An evolution system for populations too large to keep on the heap.
+ *
+ * Works like Evolution, but the DNA and fitness of every individual live in
+ * memory-mapped files (see MappedPopulation). Each generation is bred from the
+ * previous one in streaming passes: parents are sampled up front and read in
+ * file order, and children are written in file order. Only workingSetSize
+ * evolvers at a time are created to be evaluated. The heap only holds the
+ * working set and 12 bytes per individual to rank the population by fitness
+ * and to remember the sampled parents.
+ *
+ * Every base of the starting DNA must be one the evolver defines an action
+ * for, and an evolver can define at most 256 bases.
+ */
+public class MappedEvolution implements Closeable {
+
+	public static final int DEFAULT_WORKING_SET_SIZE = 1024;
+
+	private EvolutionParameters defaultParameters = EvolutionParameters.DEFAULT;
+
+	private final Class<? extends Evolver> evolverType;
+	private final int popSize;
+	private final int dnaLength;
+	private final int workingSetSize;
+	private final Evaluator evaluator;
+	private final Character[] bases;
+
+	private MappedPopulation currentGeneration;
+	private MappedPopulation nextGeneration;
+	private final long[] ranking;
+	private final int[] parents;
+	private int generationCount = 0;
+
+	/**
+	 * Creates the evolution system with the default working set size,
+	 * evaluating in-process.
+	 *
+	 * @param evolverType:
+	 *            The class type to evolve. Must extend Evolver.
+	 *
+	 * @param popSize:
+	 *            The number of individuals in each generation. Must be larger
+	 *            than 0.
+	 *
+	 * @param startingDna:
+	 *            The DNA that the first generation evolves off of.
+	 *
+	 * @param directory:
+	 *            The directory the population files are created in.
+	 */
+	public MappedEvolution(Class<? extends Evolver> evolverType, int popSize, String startingDna, File directory)
+			throws IOException {
+		this(evolverType, popSize, startingDna, directory, DEFAULT_WORKING_SET_SIZE, new InProcessEvaluator());
+	}
+
+	/**
+	 * Creates the evolution system.
+	 *
+	 * @param evolverType:
+	 *            The class type to evolve. Must extend Evolver.
+	 *
+	 * @param popSize:
+	 *            The number of individuals in each generation. Must be larger
+	 *            than 0.
+	 *
+	 * @param startingDna:
+	 *            The DNA that the first generation evolves off of.
+	 *
+	 * @param directory:
+	 *            The directory the population files are created in.
+	 *
+	 * @param workingSetSize:
+	 *            The number of evolvers handed to the evaluator at once. Must
+	 *            be larger than 0.
+	 *
+	 * @param evaluator:
+	 *            Computes the fitness of the working sets.
+	 *
+	 * @throws IllegalArgumentException if any parameter conditions are not met
+	 */
+	public MappedEvolution(Class<? extends Evolver> evolverType, int popSize, String startingDna, File directory,
+			int workingSetSize, Evaluator evaluator) throws IOException {
+		if (popSize < 1 || workingSetSize < 1 || evaluator == null) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		this.evolverType = evolverType;
+		this.popSize = popSize;
+		this.dnaLength = startingDna.length();
+		this.workingSetSize = workingSetSize;
+		this.evaluator = evaluator;
+		Evolver prototype = Evolution.createEvolver(evolverType, startingDna);
+		if (prototype == null) {
+			throw new IllegalArgumentException("Can not create an evolver of type " + evolverType.getName());
+		}
+		this.bases = prototype.getBases();
+		if (this.bases.length == 0 || this.bases.length > 256) {
+			throw new IllegalArgumentException("Evolver must define between 1 and 256 bases");
+		}
+		this.ranking = new long[popSize];
+		this.parents = new int[popSize];
+
+		this.currentGeneration = new MappedPopulation(directory, popSize, this.dnaLength);
+		try {
+			this.nextGeneration = new MappedPopulation(directory, popSize, this.dnaLength);
+			this.setup(startingDna);
+		} catch (IOException | RuntimeException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Simulates evolution for the given number of generations, with advanced
+	 * evolution parameters. The parameters mean the same as in
+	 * Evolution.evolve().
+	 *
+	 * @throws IllegalArgumentException if any parameter conditions are not met
+	 */
+	public void evolve(int numGenerations, double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
+		this.evolve(numGenerations, new EvolutionParameters(survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate));
+	}
+
+	/**
+	 * Simulates evolution for the given number of generations, with default
+	 * evolution parameters. These default parameters can be set with
+	 * setDefaultEvolutionParameters()
+	 */
+	public void evolve(int numGenerations) {
+		this.evolve(numGenerations, this.defaultParameters);
+	}
+
+	/**
+	 * Sets the parameters that will be called by default when evolve(int
+	 * numGenerations) is called. The parameters mean the same as in
+	 * Evolution.setDefaultEvolutionParameters().
+	 *
+	 * @throws IllegalArgumentException if any parameter conditions are not met
+	 */
+	public void setDefaultEvolutionParameters(double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
+		this.defaultParameters = new EvolutionParameters(survivalConstant, individualMutationRate, dnaMutationRate, crossOverRate);
+	}
+
+	/**
+	 * Returns the number of generations the population has been evolving for.
+	 *
+	 * @return the generation count
+	 */
+	public int getGenerationCount() {
+		return this.generationCount;
+	}
+
+	/**
+	 * Creates evolvers for the fittest individuals of the current generation.
+	 *
+	 * The evolvers report the fitness they were given when their generation
+	 * was evaluated, but simulateLife() has not been called on them.
+	 *
+	 * @param count:
+	 *            the number of individuals. At most the population size is
+	 *            returned.
+	 *
+	 * @return the evolvers, ordered from most to least fit.
+	 */
+	public List<Evolver> getBest(int count) {
+		List<Evolver> best = new ArrayList<Evolver>();
+		byte[] dna = new byte[this.dnaLength];
+
+		for (int rank = 0; rank < Math.min(count, this.popSize); rank++) {
+			int index = this.indexOfRank(rank);
+			this.currentGeneration.readDna(index, dna);
+			Evolver evolver = Evolution.createEvolver(this.evolverType, this.decode(dna));
+			evolver.setFitness(this.currentGeneration.getFitness(index));
+			best.add(evolver);
+		}
+		return best;
+	}
+
+	/**
+	 * Deletes the population files.
+	 */
+	public void close() {
+		if (this.currentGeneration != null) {
+			this.currentGeneration.close();
+		}
+		if (this.nextGeneration != null) {
+			this.nextGeneration.close();
+		}
+	}
+
+	private void evolve(int numGenerations, EvolutionParameters parameters) {
+		if (numGenerations < 0) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		for (int i = 0; i < numGenerations; i++) {
+			this.loop(parameters.survivalConstant, parameters.individualMutationRate, parameters.dnaMutationRate, parameters.crossOverRate);
+		}
+	}
+
+	private void setup(String startingDna) {
+		byte[] start = new byte[this.dnaLength];
+		for (int i = 0; i < this.dnaLength; i++) {
+			start[i] = this.encode(startingDna.charAt(i));
+		}
+
+		// initial population as mutated variants of the starting DNA
+		byte[] dna = new byte[this.dnaLength];
+		for (int i = 0; i < this.popSize; i++) {
+			System.arraycopy(start, 0, dna, 0, this.dnaLength);
+			this.mutate(dna, 1);
+			this.currentGeneration.writeDna(i, dna);
+		}
+		this.simulateGeneration(this.currentGeneration);
+	}
+
+	private void loop(double survivalConstant, double individualMutationRate, double dnaMutationRate, double crossOverRate) {
+		// sample every parent first, so the parents can be read in file order
+		// rather than jumping through the mapped population once per child
+		for (int i = 0; i < this.popSize; i++) {
+			this.parents[i] = this.indexOfRank(this.sampleRank(survivalConstant));
+		}
+		Arrays.sort(this.parents);
+
+		// copies of a popular parent end up next to each other, so each one is
+		// paired with the parent half a population further on. Both halves are
+		// read front to back, and children are written front to back.
+		byte[] first = new byte[this.dnaLength];
+		byte[] second = new byte[this.dnaLength];
+		int half = this.popSize / 2;
+
+		for (int j = 0; j < half; j++) {
+			this.currentGeneration.readDna(this.parents[j], first);
+			this.currentGeneration.readDna(this.parents[half + j], second);
+			if (Math.random() < crossOverRate) {
+				this.crossOver(first, second);
+			}
+			this.breed(2 * j, first, individualMutationRate, dnaMutationRate);
+			this.breed(2 * j + 1, second, individualMutationRate, dnaMutationRate);
+		}
+		if (this.popSize % 2 == 1) {
+			this.currentGeneration.readDna(this.parents[this.popSize - 1], first);
+			this.breed(this.popSize - 1, first, individualMutationRate, dnaMutationRate);
+		}
+
+		MappedPopulation previous = this.currentGeneration;
+		this.currentGeneration = this.nextGeneration;
+		this.nextGeneration = previous;
+		this.generationCount++;
+
+		this.simulateGeneration(this.currentGeneration);
+	}
+
+	private void breed(int index, byte[] dna, double individualMutationRate, double dnaMutationRate) {
+		if (Math.random() < individualMutationRate) {
+			this.mutate(dna, dnaMutationRate);
+		}
+		this.nextGeneration.writeDna(index, dna);
+	}
+
+	private void simulateGeneration(MappedPopulation generation) {
+		byte[] dna = new byte[this.dnaLength];
+		List<Evolver> workingSet = new ArrayList<Evolver>(this.workingSetSize);
+
+		for (int start = 0; start < this.popSize; start += this.workingSetSize) {
+			int end = Math.min(start + this.workingSetSize, this.popSize);
+			workingSet.clear();
+			for (int i = start; i < end; i++) {
+				generation.readDna(i, dna);
+				workingSet.add(Evolution.createEvolver(this.evolverType, this.decode(dna)));
+			}
+			this.evaluator.evaluate(workingSet);
+			for (int i = start; i < end; i++) {
+				generation.setFitness(i, workingSet.get(i - start).getFitness());
+			}
+		}
+
+		// sort keys of (fitness, index), most fit last
+		for (int i = 0; i < this.popSize; i++) {
+			this.ranking[i] = ((long) generation.getFitness(i) << 32) | i;
+		}
+		Arrays.sort(this.ranking);
+	}
+
+	private int indexOfRank(int rank) {
+		return (int) this.ranking[this.popSize - 1 - rank];
+	}
+
+	/*
+	 * Samples a rank with the same distribution as
+	 * Evolution.getSurvivalProbabilities(): rank i has probability
+	 * c * (1 - c)^i, and the last rank takes whatever is left.
+	 */
+	private int sampleRank(double survivalConstant) {
+		if (survivalConstant >= 1) {
+			return 0;
+		}
+		if (survivalConstant <= 0) {
+			return this.popSize - 1;
+		}
+		double rank = Math.floor(Math.log(1 - Math.random()) / Math.log(1 - survivalConstant));
+		return rank >= this.popSize - 1 ? this.popSize - 1 : (int) rank;
+	}
+
+	private void crossOver(byte[] first, byte[] second) {
+		int splicePoint = (int) Math.floor(Math.random() * this.dnaLength);
+		for (int i = splicePoint; i < this.dnaLength; i++) {
+			byte swap = first[i];
+			first[i] = second[i];
+			second[i] = swap;
+		}
+	}
+
+	private void mutate(byte[] dna, double mutationRate) {
+		if (this.bases.length < 2) {
+			return;
+		}
+		for (int i = 0; i < dna.length; i++) {
+			if (Math.random() < mutationRate) {
+				// shift by 1 to bases - 1 so the base always changes
+				int shift = 1 + (int) (Math.random() * (this.bases.length - 1));
+				dna[i] = (byte) (((dna[i] & 0xff) + shift) % this.bases.length);
+			}
+		}
+	}
+
+	private byte encode(char base) {
+		for (int code = 0; code < this.bases.length; code++) {
+			if (this.bases[code].charValue() == base) {
+				return (byte) code;
+			}
+		}
+		throw new IllegalArgumentException("Action: '" + base + "' Does not exist");
+	}
+
+	private String decode(byte[] dna) {
+		char[] chars = new char[dna.length];
+		for (int i = 0; i < dna.length; i++) {
+			chars[i] = this.bases[dna[i] & 0xff];
+		}
+		return new String(chars);
+	}
+}
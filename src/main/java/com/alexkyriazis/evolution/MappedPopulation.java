@@ -0,0 +1,101 @@
+package com.alexkyriazis.evolution;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Fixed size storage for the DNA and fitness of a population, kept in
+ * memory-mapped segment files rather than on the heap.
+ *
+ * Each individual is a record of [int fitness][dnaLength bytes of DNA]. The
+ * DNA is stored as one byte per base, the byte being an index into the
+ * alphabet of the evolver. Records never span two segments.
+ */
+class MappedPopulation implements Closeable {
+
+	private static final long MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+	private final int size;
+	private final int dnaLength;
+	private final int recordSize;
+	private final int recordsPerSegment;
+	private final File[] files;
+	private final ByteBuffer[] segments;
+
+	MappedPopulation(File directory, int size, int dnaLength) throws IOException {
+		if (dnaLength > Integer.MAX_VALUE - 4) {
+			throw new IllegalArgumentException("DNA too long to map");
+		}
+		this.size = size;
+		this.dnaLength = dnaLength;
+		this.recordSize = 4 + dnaLength;
+		this.recordsPerSegment = (int) Math.max(1, Math.min(size, MAX_SEGMENT_BYTES / this.recordSize));
+
+		int numSegments = (size + this.recordsPerSegment - 1) / this.recordsPerSegment;
+		this.files = new File[numSegments];
+		this.segments = new ByteBuffer[numSegments];
+
+		try {
+			for (int s = 0; s < numSegments; s++) {
+				int records = Math.min(this.recordsPerSegment, size - s * this.recordsPerSegment);
+				this.files[s] = File.createTempFile("population", ".seg", directory);
+				try (RandomAccessFile file = new RandomAccessFile(this.files[s], "rw")) {
+					// the mapping stays valid after the file is closed
+					this.segments[s] = file.getChannel().map(MapMode.READ_WRITE, 0, (long) records * this.recordSize);
+				}
+			}
+		} catch (IOException e) {
+			this.close();
+			throw e;
+		}
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	int getFitness(int index) {
+		return this.segment(index).getInt(this.offset(index));
+	}
+
+	void setFitness(int index, int fitness) {
+		this.segment(index).putInt(this.offset(index), fitness);
+	}
+
+	void readDna(int index, byte[] dna) {
+		ByteBuffer segment = this.segment(index);
+		segment.position(this.offset(index) + 4);
+		segment.get(dna, 0, this.dnaLength);
+	}
+
+	void writeDna(int index, byte[] dna) {
+		ByteBuffer segment = this.segment(index);
+		segment.position(this.offset(index) + 4);
+		segment.put(dna, 0, this.dnaLength);
+	}
+
+	/**
+	 * Deletes the segment files. The pages stay mapped until the buffers are
+	 * garbage collected, but no longer take up space in the directory.
+	 */
+	public void close() {
+		for (int s = 0; s < this.files.length; s++) {
+			this.segments[s] = null;
+			if (this.files[s] != null && !this.files[s].delete()) {
+				this.files[s].deleteOnExit();
+			}
+		}
+	}
+
+	private ByteBuffer segment(int index) {
+		return this.segments[index / this.recordsPerSegment];
+	}
+
+	private int offset(int index) {
+		return (index % this.recordsPerSegment) * this.recordSize;
+	}
+}
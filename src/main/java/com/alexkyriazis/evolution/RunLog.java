@@ -0,0 +1,324 @@
+package com.alexkyriazis.evolution;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An append-only binary log of an evolution run.
+ *
+ * Attach it with Evolution.setRunLog(). For every generation it records a
+ * summary, the DNA of the elites, a fitness histogram and the lineage (the
+ * ranks of the parents in the previous generation) of every individual.
+ *
+ * The evolving thread only copies the fitness values, lineage and (immutable)
+ * elite genomes of the generation into a bounded queue. Building the elite
+ * DNA strings, encoding, compression and writing happen on a background
+ * thread. If the writer falls behind, generations are dropped
+ * rather than slowing the evolution down; see getDroppedCount(). If the writer
+ * fails, the next call to logGeneration() throws and close() reports the
+ * error.
+ *
+ * Use RunLogReader to turn a log into CSV files. All integers are big-endian.
+ *
+ * File: [int MAGIC][short VERSION] followed by records, each starting with a
+ * byte record type:
+ *
+ * GENERATION: [int generation][int popSize][int best][int worst][double mean]
+ * ELITE: [int generation][int rank][int fitness][int length][length bytes of UTF-8 DNA]
+ * HISTOGRAM: [int generation][int min][int bucketWidth][int buckets][int count] * buckets
+ * LINEAGE: [int generation][int count]([int parentRank][int mateRank]) * count
+ *
+ * A rank of -1 means there is no such parent (initial population, or no
+ * crossover happened).
+ */
+public class RunLog implements Closeable {
+
+	public static final int MAGIC = 0x45564C47;
+	public static final short VERSION = 1;
+
+	public static final byte GENERATION = 1;
+	public static final byte ELITE = 2;
+	public static final byte HISTOGRAM = 3;
+	public static final byte LINEAGE = 4;
+
+	public static final int DEFAULT_ELITE_COUNT = 3;
+	public static final int DEFAULT_HISTOGRAM_BUCKETS = 10;
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final Record POISON = new Record(-1, new int[0], new Genome[0], new int[0], new int[0]);
+
+	private final int eliteCount;
+	private final int histogramBuckets;
+	private final BlockingQueue<Record> queue;
+	private final FileChannel channel;
+	private final OutputStream compressed;
+	private final Thread writer;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+	private volatile long dropped = 0;
+	private volatile IOException failure;
+	private volatile boolean writerDead = false;
+	private boolean closed = false;
+
+	/**
+	 * Creates a run log with the default number of elites, histogram buckets
+	 * and queue capacity.
+	 *
+	 * @param file:
+	 *            the file to write to. It is truncated if it exists.
+	 *
+	 * @param compress:
+	 *            whether the log is gzip compressed.
+	 */
+	public RunLog(File file, boolean compress) throws IOException {
+		this(file, compress, DEFAULT_ELITE_COUNT, DEFAULT_HISTOGRAM_BUCKETS, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a run log.
+	 *
+	 * @param file:
+	 *            the file to write to. It is truncated if it exists.
+	 *
+	 * @param compress:
+	 *            whether the log is gzip compressed.
+	 *
+	 * @param eliteCount:
+	 *            the number of top individuals whose DNA is logged every
+	 *            generation. Must not be negative.
+	 *
+	 * @param histogramBuckets:
+	 *            the number of buckets of the fitness histogram. Must be larger
+	 *            than 0.
+	 *
+	 * @param capacity:
+	 *            the number of generations that can wait for the writer before
+	 *            generations are dropped. Must be larger than 0.
+	 */
+	public RunLog(File file, boolean compress, int eliteCount, int histogramBuckets, int capacity) throws IOException {
+		if (eliteCount < 0 || histogramBuckets < 1 || capacity < 1) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		this.eliteCount = eliteCount;
+		this.histogramBuckets = histogramBuckets;
+		this.queue = new ArrayBlockingQueue<Record>(capacity);
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.compressed = compress ? new GZIPOutputStream(Channels.newOutputStream(this.channel), 64 * 1024) : null;
+
+		this.buffer.putInt(MAGIC).putShort(VERSION);
+		this.flushBuffer();
+
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				RunLog.this.drain();
+			}
+		}, "run-log-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Records a generation. Called by Evolution after every generation has
+	 * been simulated and sorted, but can be called directly as well.
+	 *
+	 * @param generation:
+	 *            the generation number.
+	 *
+	 * @param population:
+	 *            the individuals of the generation, ordered from most to least
+	 *            fit.
+	 *
+	 * @throws IllegalStateException if the log is closed or writing it failed.
+	 */
+	public void logGeneration(int generation, List<? extends Evolver> population) {
+		if (this.closed) {
+			throw new IllegalStateException("Run log is closed");
+		}
+		if (this.failure != null) {
+			throw new IllegalStateException("Run log could not be written", this.failure);
+		}
+		if (this.writerDead) {
+			this.dropped++;
+			return;
+		}
+		int size = population.size();
+		int[] fitness = new int[size];
+		int[] parents = new int[size];
+		int[] mates = new int[size];
+		Genome[] elites = new Genome[Math.min(this.eliteCount, size)];
+
+		for (int i = 0; i < size; i++) {
+			Evolver evolver = population.get(i);
+			fitness[i] = evolver.getFitness();
+			parents[i] = evolver.parentRank;
+			mates[i] = evolver.mateRank;
+			if (i < elites.length) {
+				elites[i] = evolver.getGenome();
+			}
+		}
+		if (!this.queue.offer(new Record(generation, fitness, elites, parents, mates))) {
+			this.dropped++;
+		}
+	}
+
+	/**
+	 * @return the number of generations that were not logged because the
+	 *         writer could not keep up.
+	 */
+	public long getDroppedCount() {
+		return this.dropped;
+	}
+
+	/**
+	 * Writes out all queued generations and closes the file.
+	 *
+	 * @throws IOException if writing the log failed at any point.
+	 */
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			// a dead writer no longer empties the queue, so never wait on it for good
+			boolean handedOff = false;
+			while (!handedOff && !this.writerDead) {
+				handedOff = this.queue.offer(POISON, 100, TimeUnit.MILLISECONDS);
+			}
+			if (handedOff) {
+				this.writer.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (this.compressed != null) {
+				this.compressed.close();
+			}
+		} finally {
+			this.channel.close();
+		}
+		if (this.failure != null) {
+			throw this.failure;
+		}
+	}
+
+	private void drain() {
+		try {
+			while (true) {
+				Record record = this.queue.take();
+				if (record == POISON) {
+					break;
+				}
+				this.encode(record);
+				// keep writing in large chunks while the evolution is ahead of us
+				if (this.queue.isEmpty() || this.buffer.position() > this.buffer.capacity() / 2) {
+					this.flushBuffer();
+				}
+			}
+			this.flushBuffer();
+		} catch (IOException e) {
+			this.failure = e;
+		} catch (RuntimeException e) {
+			this.failure = new IOException("Run log writer failed", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.writerDead = true;
+		}
+	}
+
+	private void encode(Record record) {
+		int size = record.fitness.length;
+		if (size == 0) {
+			return;
+		}
+		int best = record.fitness[0];
+		int worst = record.fitness[0];
+		long sum = 0;
+		for (int f : record.fitness) {
+			best = Math.max(best, f);
+			worst = Math.min(worst, f);
+			sum += f;
+		}
+
+		this.ensureRemaining(1 + 4 * 4 + 8);
+		this.buffer.put(GENERATION).putInt(record.generation).putInt(size).putInt(best).putInt(worst)
+				.putDouble((double) sum / size);
+
+		for (int rank = 0; rank < record.elites.length; rank++) {
+			byte[] dna = record.elites[rank].toString().getBytes(StandardCharsets.UTF_8);
+			this.ensureRemaining(1 + 4 * 4 + dna.length);
+			this.buffer.put(ELITE).putInt(record.generation).putInt(rank).putInt(record.fitness[rank])
+					.putInt(dna.length).put(dna);
+		}
+
+		int bucketWidth = (int) Math.max(1, ((long) best - worst + this.histogramBuckets) / this.histogramBuckets);
+		int[] counts = new int[this.histogramBuckets];
+		for (int f : record.fitness) {
+			counts[(int) (((long) f - worst) / bucketWidth)]++;
+		}
+		this.ensureRemaining(1 + 4 * 4 + 4 * counts.length);
+		this.buffer.put(HISTOGRAM).putInt(record.generation).putInt(worst).putInt(bucketWidth).putInt(counts.length);
+		for (int count : counts) {
+			this.buffer.putInt(count);
+		}
+
+		this.ensureRemaining(1 + 4 * 2 + 8 * size);
+		this.buffer.put(LINEAGE).putInt(record.generation).putInt(size);
+		for (int i = 0; i < size; i++) {
+			this.buffer.putInt(record.parents[i]).putInt(record.mates[i]);
+		}
+	}
+
+	private void ensureRemaining(int bytes) {
+		if (this.buffer.remaining() >= bytes) {
+			return;
+		}
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + bytes));
+		this.buffer.flip();
+		larger.put(this.buffer);
+		this.buffer = larger;
+	}
+
+	private void flushBuffer() throws IOException {
+		this.buffer.flip();
+		if (this.compressed != null) {
+			this.compressed.write(this.buffer.array(), 0, this.buffer.limit());
+		} else {
+			while (this.buffer.hasRemaining()) {
+				this.channel.write(this.buffer);
+			}
+		}
+		this.buffer.clear();
+	}
+
+	private static class Record {
+		final int generation;
+		final int[] fitness;
+		final Genome[] elites;
+		final int[] parents;
+		final int[] mates;
+
+		Record(int generation, int[] fitness, Genome[] elites, int[] parents, int[] mates) {
+			this.generation = generation;
+			this.fitness = fitness;
+			this.elites = elites;
+			this.parents = parents;
+			this.mates = mates;
+		}
+	}
+}
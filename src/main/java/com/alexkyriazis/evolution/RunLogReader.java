@@ -0,0 +1,128 @@
+package com.alexkyriazis.evolution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Converts a log written by RunLog into CSV files.
+ *
+ * Usage: java -cp <classpath> com.alexkyriazis.evolution.RunLogReader <log file> <output directory>
+ *
+ * Writes generations.csv, elites.csv, histograms.csv and lineage.csv into the
+ * output directory. Compressed logs are detected automatically.
+ */
+public final class RunLogReader {
+
+	private RunLogReader() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: RunLogReader <log file> <output directory>");
+			System.exit(2);
+		}
+		toCsv(new File(args[0]), new File(args[1]));
+	}
+
+	/**
+	 * Converts a run log into CSV files.
+	 *
+	 * @param log:
+	 *            the log written by RunLog.
+	 *
+	 * @param directory:
+	 *            the directory to write the CSV files to. Created if missing.
+	 *
+	 * @throws IOException if the log can not be read or is not a run log.
+	 */
+	public static void toCsv(File log, File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+
+		try (DataInputStream in = new DataInputStream(open(log));
+				PrintWriter generations = writer(directory, "generations.csv");
+				PrintWriter elites = writer(directory, "elites.csv");
+				PrintWriter histograms = writer(directory, "histograms.csv");
+				PrintWriter lineage = writer(directory, "lineage.csv")) {
+
+			if (in.readInt() != RunLog.MAGIC) {
+				throw new IOException(log + " is not a run log");
+			}
+			short version = in.readShort();
+			if (version != RunLog.VERSION) {
+				throw new IOException("Unsupported run log version " + version);
+			}
+
+			generations.println("generation,popSize,best,worst,mean");
+			elites.println("generation,rank,fitness,dna");
+			histograms.println("generation,from,to,count");
+			lineage.println("generation,rank,parentRank,mateRank");
+
+			while (true) {
+				int type = in.read();
+				if (type == -1) {
+					break;
+				}
+				int generation = in.readInt();
+
+				switch (type) {
+				case RunLog.GENERATION:
+					generations.println(generation + "," + in.readInt() + "," + in.readInt() + "," + in.readInt() + ","
+							+ in.readDouble());
+					break;
+				case RunLog.ELITE:
+					int rank = in.readInt();
+					int fitness = in.readInt();
+					byte[] dna = new byte[in.readInt()];
+					in.readFully(dna);
+					elites.println(generation + "," + rank + "," + fitness + "," + new String(dna, StandardCharsets.UTF_8));
+					break;
+				case RunLog.HISTOGRAM:
+					int min = in.readInt();
+					int bucketWidth = in.readInt();
+					int buckets = in.readInt();
+					for (int i = 0; i < buckets; i++) {
+						int from = min + i * bucketWidth;
+						histograms.println(generation + "," + from + "," + (from + bucketWidth - 1) + "," + in.readInt());
+					}
+					break;
+				case RunLog.LINEAGE:
+					int count = in.readInt();
+					for (int i = 0; i < count; i++) {
+						lineage.println(generation + "," + i + "," + in.readInt() + "," + in.readInt());
+					}
+					break;
+				default:
+					throw new IOException("Unknown record type " + type);
+				}
+			}
+		} catch (EOFException e) {
+			throw new IOException(log + " ends in the middle of a record", e);
+		}
+	}
+
+	private static InputStream open(File log) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(log));
+		in.mark(2);
+		boolean gzip = in.read() == 0x1f && in.read() == 0x8b;
+		in.reset();
+		return gzip ? new BufferedInputStream(new GZIPInputStream(in)) : in;
+	}
+
+	private static PrintWriter writer(File directory, String name) throws IOException {
+		return new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(directory, name)),
+				StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,307 @@
+package com.alexkyriazis.evolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Wraps another evaluator and skips the evaluation of individuals that are
+ * unlikely to be any good.
+ *
+ * Every truly evaluated individual is remembered as a (DNA, fitness) pair in a
+ * bounded archive. Each DNA is described by the counts of its k-mers (hashed
+ * into a fixed number of buckets), and the fitness of a new individual is
+ * predicted as the distance weighted average of its nearest neighbours in the
+ * archive. Only the most promising fraction of a generation, plus a random
+ * sample of the rest, is passed on to the wrapped evaluator. All other
+ * individuals get the predicted fitness, unless it is at least as high as the
+ * best true fitness of the generation, in which case they are evaluated as
+ * well. The fittest individual therefore always carries a true fitness.
+ *
+ * Until the archive holds minSamples individuals, everything is evaluated.
+ *
+ * The random sample is drawn from the same source of randomness as the
+ * evolvers, so an Evolution created with a seeded Random stays reproducible.
+ *
+ * Note: individuals whose fitness was predicted were never simulated, so any
+ * behavioural state they have is not up to date.
+ */
+public class SurrogateEvaluator implements Evaluator {
+
+	public static final int DEFAULT_KMER_LENGTH = 3;
+	public static final int DEFAULT_NEIGHBOURS = 3;
+	public static final int DEFAULT_ARCHIVE_SIZE = 500;
+	public static final int DEFAULT_MIN_SAMPLES = 50;
+
+	private static final int FEATURE_BUCKETS = 128;
+
+	private final Evaluator delegate;
+	private final double evaluationFraction;
+	private final double revalidationRate;
+	private final int kmerLength;
+	private final int neighbours;
+	private final int minSamples;
+
+	private final int[][] archiveFeatures;
+	private final int[] archiveFitness;
+	private int archiveCount = 0;
+	private int archiveNext = 0;
+
+	private long trueEvaluations = 0;
+	private long predictions = 0;
+
+	/**
+	 * Creates a surrogate with default model parameters.
+	 *
+	 * @param delegate:
+	 *            the evaluator that computes the true fitness.
+	 *
+	 * @param evaluationFraction:
+	 *            a percentage between 0 (exclusive) and 1 of each generation,
+	 *            taken from the individuals with the best predicted fitness,
+	 *            that is truly evaluated.
+	 *
+	 * @param revalidationRate:
+	 *            a percentage between 0 and 1 representing the probability
+	 *            that any other individual is truly evaluated as well. Keeps
+	 *            the model honest about the individuals it rejects.
+	 */
+	public SurrogateEvaluator(Evaluator delegate, double evaluationFraction, double revalidationRate) {
+		this(delegate, evaluationFraction, revalidationRate, DEFAULT_KMER_LENGTH, DEFAULT_NEIGHBOURS,
+				DEFAULT_ARCHIVE_SIZE, DEFAULT_MIN_SAMPLES);
+	}
+
+	/**
+	 * Creates a surrogate.
+	 *
+	 * @param delegate:
+	 *            the evaluator that computes the true fitness.
+	 *
+	 * @param evaluationFraction:
+	 *            a percentage between 0 (exclusive) and 1 of each generation,
+	 *            taken from the individuals with the best predicted fitness,
+	 *            that is truly evaluated.
+	 *
+	 * @param revalidationRate:
+	 *            a percentage between 0 and 1 representing the probability
+	 *            that any other individual is truly evaluated as well.
+	 *
+	 * @param kmerLength:
+	 *            the length of the DNA substrings used as features. Must be
+	 *            larger than 0.
+	 *
+	 * @param neighbours:
+	 *            the number of archived individuals a prediction is averaged
+	 *            over. Must be larger than 0.
+	 *
+	 * @param archiveSize:
+	 *            the number of truly evaluated individuals remembered. The
+	 *            oldest are forgotten first. Must be at least neighbours.
+	 *
+	 * @param minSamples:
+	 *            the number of archived individuals needed before any
+	 *            prediction is made. Must be between neighbours and
+	 *            archiveSize.
+	 *
+	 * @throws IllegalArgumentException if any parameter conditions are not met
+	 */
+	public SurrogateEvaluator(Evaluator delegate, double evaluationFraction, double revalidationRate, int kmerLength,
+			int neighbours, int archiveSize, int minSamples) {
+		if (delegate == null
+				|| evaluationFraction <= 0 || evaluationFraction > 1
+				|| revalidationRate < 0 || revalidationRate > 1
+				|| kmerLength < 1 || neighbours < 1
+				|| archiveSize < neighbours
+				|| minSamples < neighbours || minSamples > archiveSize) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		this.delegate = delegate;
+		this.evaluationFraction = evaluationFraction;
+		this.revalidationRate = revalidationRate;
+		this.kmerLength = kmerLength;
+		this.neighbours = neighbours;
+		this.minSamples = minSamples;
+		this.archiveFeatures = new int[archiveSize][];
+		this.archiveFitness = new int[archiveSize];
+	}
+
+	public void evaluate(List<? extends Evolver> generation) {
+		int size = generation.size();
+		int[][] features = new int[size][];
+		for (int i = 0; i < size; i++) {
+			features[i] = this.features(generation.get(i).getGenome());
+		}
+
+		if (this.archiveCount < this.minSamples) {
+			this.evaluateTruly(generation, features, allIndices(size));
+			return;
+		}
+
+		double[] predicted = new double[size];
+		Integer[] byPrediction = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			predicted[i] = this.predict(features[i]);
+			byPrediction[i] = i;
+		}
+		final double[] keys = predicted;
+		Arrays.sort(byPrediction, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(keys[i2], keys[i1]);
+			}
+		});
+
+		int promising = (int) Math.ceil(size * this.evaluationFraction);
+		Random random = size > 0 ? generation.get(0).random : null;
+		List<Integer> chosen = new ArrayList<Integer>();
+		List<Integer> skipped = new ArrayList<Integer>();
+		for (int rank = 0; rank < size; rank++) {
+			int index = byPrediction[rank];
+			if (rank < promising || nextRandom(random) < this.revalidationRate) {
+				chosen.add(index);
+			} else {
+				skipped.add(index);
+			}
+		}
+		this.evaluateTruly(generation, features, chosen);
+
+		int trueBest = Integer.MIN_VALUE;
+		for (Integer index : chosen) {
+			trueBest = Math.max(trueBest, generation.get(index).getFitness());
+		}
+
+		// a prediction must never outrank a true fitness, so anything that
+		// claims to match the best of the batch is simulated after all
+		List<Integer> promoted = new ArrayList<Integer>();
+		for (Integer index : skipped) {
+			int fitness = (int) Math.round(predicted[index]);
+			if (fitness >= trueBest) {
+				promoted.add(index);
+			} else {
+				generation.get(index).setFitness(fitness);
+				this.predictions++;
+			}
+		}
+		if (!promoted.isEmpty()) {
+			this.evaluateTruly(generation, features, promoted);
+		}
+	}
+
+	/**
+	 * @return the number of individuals passed on to the wrapped evaluator so
+	 *         far.
+	 */
+	public long getTrueEvaluationCount() {
+		return this.trueEvaluations;
+	}
+
+	/**
+	 * @return the number of individuals that were given a predicted fitness
+	 *         so far.
+	 */
+	public long getPredictionCount() {
+		return this.predictions;
+	}
+
+	private void evaluateTruly(List<? extends Evolver> generation, int[][] features, List<Integer> indices) {
+		List<Evolver> batch = new ArrayList<Evolver>(indices.size());
+		for (Integer index : indices) {
+			batch.add(generation.get(index));
+		}
+		this.delegate.evaluate(batch);
+		this.trueEvaluations += batch.size();
+
+		for (int i = 0; i < indices.size(); i++) {
+			this.learn(features[indices.get(i)], batch.get(i).getFitness());
+		}
+	}
+
+	private static double nextRandom(Random random) {
+		return random != null ? random.nextDouble() : Math.random();
+	}
+
+	private void learn(int[] features, int fitness) {
+		this.archiveFeatures[this.archiveNext] = features;
+		this.archiveFitness[this.archiveNext] = fitness;
+		this.archiveNext = (this.archiveNext + 1) % this.archiveFitness.length;
+		this.archiveCount = Math.min(this.archiveCount + 1, this.archiveFitness.length);
+	}
+
+	private double predict(int[] features) {
+		// nearest neighbours, kept sorted by distance with an insertion sort
+		long[] nearestDistance = new long[this.neighbours];
+		int[] nearestFitness = new int[this.neighbours];
+		Arrays.fill(nearestDistance, Long.MAX_VALUE);
+
+		for (int a = 0; a < this.archiveCount; a++) {
+			long distance = distance(features, this.archiveFeatures[a]);
+			if (distance == 0) {
+				return this.archiveFitness[a];
+			}
+			int slot = this.neighbours - 1;
+			if (distance >= nearestDistance[slot]) {
+				continue;
+			}
+			while (slot > 0 && nearestDistance[slot - 1] > distance) {
+				nearestDistance[slot] = nearestDistance[slot - 1];
+				nearestFitness[slot] = nearestFitness[slot - 1];
+				slot--;
+			}
+			nearestDistance[slot] = distance;
+			nearestFitness[slot] = this.archiveFitness[a];
+		}
+
+		double weightedSum = 0;
+		double weights = 0;
+		for (int n = 0; n < this.neighbours; n++) {
+			double weight = 1.0 / nearestDistance[n];
+			weightedSum += weight * nearestFitness[n];
+			weights += weight;
+		}
+		return weightedSum / weights;
+	}
+
+	private int[] features(Genome genome) {
+		final int k = this.kmerLength;
+		final int[] counts = new int[FEATURE_BUCKETS];
+		// the last k bases seen, oldest at seen % k, so k-mers can span chunks
+		final char[] window = new char[k];
+		final int[] seen = new int[1];
+
+		genome.forEachChunk(new Genome.ChunkVisitor() {
+			public void visit(char[] chars, int length) {
+				for (int i = 0; i < length; i++) {
+					window[seen[0] % k] = chars[i];
+					seen[0]++;
+					if (seen[0] < k) {
+						continue;
+					}
+					int hash = 0;
+					for (int j = 0; j < k; j++) {
+						hash = hash * 31 + window[(seen[0] + j) % k];
+					}
+					counts[(hash & Integer.MAX_VALUE) % FEATURE_BUCKETS]++;
+				}
+			}
+		});
+		return counts;
+	}
+
+	private static long distance(int[] f1, int[] f2) {
+		long sum = 0;
+		for (int i = 0; i < f1.length; i++) {
+			long difference = f1[i] - f2[i];
+			sum += difference * difference;
+		}
+		return sum;
+	}
+
+	private static List<Integer> allIndices(int size) {
+		List<Integer> indices = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; i++) {
+			indices.add(i);
+		}
+		return indices;
+	}
+}
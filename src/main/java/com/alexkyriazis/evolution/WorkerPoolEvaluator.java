@@ -0,0 +1,297 @@
+package com.alexkyriazis.evolution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Evaluates evolvers in a pool of long-lived worker processes.
+ *
+ * Each worker is fed DNA over its stdin and answers with fitness values over
+ * its stdout, using the framing described in EvaluationWorker. Requests are
+ * pipelined: up to pipelineDepth DNA strands are in flight per worker so the
+ * workers never wait on a round trip. Workers pull work from a shared cursor,
+ * so slow and fast individuals are balanced across the pool.
+ *
+ * A worker that crashes is restarted and its unanswered requests are sent
+ * again. A worker that stalls, i.e. does not answer within the response
+ * timeout, is killed and treated as crashed. If the same worker fails more
+ * than MAX_RESTARTS times during one evaluation an IllegalStateException is
+ * thrown.
+ *
+ * Note: only the fitness of the evolvers is updated. Any behavioural state
+ * (e.g. a position) stays in the worker process.
+ */
+public class WorkerPoolEvaluator implements Evaluator, Closeable {
+
+	public static final int DEFAULT_PIPELINE_DEPTH = 64;
+	public static final int MAX_RESTARTS = 3;
+	public static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 60000;
+
+	private final List<String> command;
+	private final int pipelineDepth;
+	private final long responseTimeoutNanos;
+	private final Worker[] workers;
+	private final ExecutorService executor;
+	private final ScheduledExecutorService watchdog;
+
+	/**
+	 * Creates a pool that evaluates the given evolver type with the
+	 * EvaluationWorker of this library, running on the same java installation
+	 * and classpath as the current JVM.
+	 *
+	 * @param evolverType:
+	 *            The class type to evaluate. Must extend Evolver and be
+	 *            reachable on the current classpath.
+	 *
+	 * @param numWorkers:
+	 *            The number of worker processes. Must be larger than 0.
+	 */
+	public static WorkerPoolEvaluator forEvolverType(Class<? extends Evolver> evolverType, int numWorkers) {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<String> command = Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+				EvaluationWorker.class.getName(), evolverType.getName());
+		return new WorkerPoolEvaluator(command, numWorkers);
+	}
+
+	/**
+	 * Creates a pool of worker processes, with the default pipeline depth.
+	 *
+	 * @param command:
+	 *            The command line that starts one worker process.
+	 *
+	 * @param numWorkers:
+	 *            The number of worker processes. Must be larger than 0.
+	 */
+	public WorkerPoolEvaluator(List<String> command, int numWorkers) {
+		this(command, numWorkers, DEFAULT_PIPELINE_DEPTH);
+	}
+
+	/**
+	 * Creates a pool of worker processes, with the default response timeout.
+	 *
+	 * @param command:
+	 *            The command line that starts one worker process.
+	 *
+	 * @param numWorkers:
+	 *            The number of worker processes. Must be larger than 0.
+	 *
+	 * @param pipelineDepth:
+	 *            The maximum number of requests in flight per worker. Must be
+	 *            larger than 0.
+	 */
+	public WorkerPoolEvaluator(List<String> command, int numWorkers, int pipelineDepth) {
+		this(command, numWorkers, pipelineDepth, DEFAULT_RESPONSE_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Creates a pool of worker processes.
+	 *
+	 * @param command:
+	 *            The command line that starts one worker process.
+	 *
+	 * @param numWorkers:
+	 *            The number of worker processes. Must be larger than 0.
+	 *
+	 * @param pipelineDepth:
+	 *            The maximum number of requests in flight per worker. Must be
+	 *            larger than 0.
+	 *
+	 * @param responseTimeoutMillis:
+	 *            How long a worker may take to answer its oldest request
+	 *            before it is considered stalled and restarted. Must be larger
+	 *            than 0.
+	 */
+	public WorkerPoolEvaluator(List<String> command, int numWorkers, int pipelineDepth, long responseTimeoutMillis) {
+		if (command.isEmpty() || numWorkers < 1 || pipelineDepth < 1 || responseTimeoutMillis < 1) {
+			throw new IllegalArgumentException("Parameter(s) out of bounds");
+		}
+		this.command = new ArrayList<String>(command);
+		this.pipelineDepth = pipelineDepth;
+		this.responseTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(responseTimeoutMillis);
+		this.workers = new Worker[numWorkers];
+		for (int i = 0; i < numWorkers; i++) {
+			this.workers[i] = new Worker();
+		}
+		this.executor = Executors.newFixedThreadPool(numWorkers, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "evaluation-worker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		// a blocked read can not time out by itself, so stalled workers are killed from here
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "evaluation-watchdog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long period = Math.max(1, responseTimeoutMillis / 4);
+		this.watchdog.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				long now = System.nanoTime();
+				for (Worker worker : WorkerPoolEvaluator.this.workers) {
+					worker.killIfStalled(now);
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public void evaluate(final List<? extends Evolver> generation) {
+		final AtomicInteger cursor = new AtomicInteger();
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		for (final Worker worker : this.workers) {
+			futures.add(this.executor.submit(new Callable<Void>() {
+				public Void call() {
+					worker.evaluate(generation, cursor);
+					return null;
+				}
+			}));
+		}
+
+		RuntimeException failure = null;
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = new IllegalStateException("Evaluation failed", e.getCause());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while evaluating", e);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Stops all worker processes. The pool can not be used afterwards.
+	 */
+	public void close() {
+		this.watchdog.shutdownNow();
+		this.executor.shutdownNow();
+		for (Worker worker : this.workers) {
+			worker.stop();
+		}
+	}
+
+	private class Worker {
+		private volatile Process process;
+		private DataInputStream in;
+		private DataOutputStream out;
+
+		// when the worker started waiting for its oldest answer, read by the watchdog
+		private volatile boolean waiting = false;
+		private volatile long waitingSince;
+
+		void evaluate(List<? extends Evolver> generation, AtomicInteger cursor) {
+			ArrayDeque<Integer> inFlight = new ArrayDeque<Integer>();
+			int restarts = 0;
+			boolean exhausted = false;
+
+			while (true) {
+				try {
+					if (this.process == null) {
+						// a fresh process knows nothing about requests sent to its predecessor
+						this.start();
+						for (Integer index : inFlight) {
+							this.send(generation.get(index));
+						}
+					}
+
+					// top the pipeline up once it is half drained so writes go out in batches
+					if (!exhausted && inFlight.size() <= pipelineDepth / 2) {
+						while (inFlight.size() < pipelineDepth) {
+							int index = cursor.getAndIncrement();
+							if (index >= generation.size()) {
+								exhausted = true;
+								break;
+							}
+							inFlight.add(index);
+							this.send(generation.get(index));
+						}
+					}
+					this.out.flush();
+					if (inFlight.isEmpty()) {
+						return;
+					}
+					this.waitingSince = System.nanoTime();
+					this.waiting = true;
+					int fitness = this.in.readInt();
+					this.waiting = false;
+					generation.get(inFlight.peek()).setFitness(fitness);
+					inFlight.poll();
+
+				} catch (IOException e) {
+					this.waiting = false;
+					this.stop();
+					if (++restarts > MAX_RESTARTS) {
+						throw new IllegalStateException("Worker process failed " + restarts + " times", e);
+					}
+				}
+			}
+		}
+
+		private void send(Evolver evolver) throws IOException {
+			byte[] dna = evolver.getDna().getBytes(StandardCharsets.UTF_8);
+			this.out.writeInt(dna.length);
+			this.out.write(dna);
+		}
+
+		private void start() throws IOException {
+			this.process = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+			this.in = new DataInputStream(new BufferedInputStream(this.process.getInputStream()));
+			this.out = new DataOutputStream(new BufferedOutputStream(this.process.getOutputStream()));
+		}
+
+		/*
+		 * Killing the process ends its output, so the blocked read fails and
+		 * the worker goes through the same restart as after a crash.
+		 */
+		void killIfStalled(long now) {
+			Process process = this.process;
+			if (process != null && this.waiting && now - this.waitingSince > responseTimeoutNanos) {
+				process.destroy();
+			}
+		}
+
+		void stop() {
+			if (this.process == null) {
+				return;
+			}
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				// the process is destroyed below anyway
+			}
+			this.process.destroy();
+			this.process = null;
+		}
+	}
+}
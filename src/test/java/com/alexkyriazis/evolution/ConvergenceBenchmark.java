@@ -0,0 +1,311 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+/*
+ * Macro benchmark: how long does Evolution take to actually solve a fixed
+ * corpus of problems?
+ *
+ * Not part of the normal build. Run it with
+ *
+ *   mvn test -Pbenchmark
+ *
+ * The problems are sized so that each run takes on the order of a second,
+ * which keeps the tolerances meaningful next to timer and GC noise.
+ *
+ * Every problem is solved REPETITIONS times, each with its own fixed seed, and
+ * the median of each metric is compared with the baseline in
+ * src/test/resources/convergence-baseline.properties. The benchmark fails if
+ * any metric is worse than the baseline by more than its tolerance. The
+ * allocation rate is recorded in the baseline as well, but not gated.
+ *
+ * It also compares the throughput of WorkerPoolEvaluator with in-process
+ * evaluation for a medium cost fitness function, and fails if the pool's
+ * relative cost grows by more than COST_TOLERANCE.
+ *
+ * Evaluation counts are exact as long as a change doesn't alter how random
+ * numbers are drawn; when it does, the runs are new samples and the baseline
+ * should be recorded again. To record a baseline, on the machine that runs
+ * the gate:
+ *
+ *   mvn test -Pbenchmark -Dbenchmark.record=true
+ */
+public class ConvergenceBenchmark {
+
+	public final int REPETITIONS = 9;
+	public final int POP_SIZE = 20;
+	public final int MAX_GENERATIONS = 20000;
+	public final long CORPUS_SEED = 20161018L;
+
+	public final String BASELINE = System.getProperty("benchmark.baseline",
+			"src/test/resources/convergence-baseline.properties");
+
+	// metric name, allowed regression as a fraction of the baseline, plus an
+	// absolute slack so that tiny measurements don't flap
+	private static final String[] METRICS = { "wallMillis", "evaluations", "peakHeapBytes", "allocatedBytes" };
+	private static final double[] TOLERANCES = { 0.5, 0.25, 0.5, 0.5 };
+	private static final long[] SLACK = { 50, 0, 8 * 1024 * 1024, 1024 * 1024 };
+
+	// a medium cost fitness function for comparing evaluators: about half a
+	// millisecond per individual in-process
+	public final int THROUGHPUT_POP_SIZE = 200;
+	public final int THROUGHPUT_DNA_LENGTH = 20000;
+	private static final double COST_TOLERANCE = 0.5;
+
+	/* Target finders heading for points at several distances, with room to spare in the DNA */
+	public static class NearTargetFinder extends TargetFinder {
+		public NearTargetFinder(String dna) {
+			super(dna, 500, 500);
+		}
+	}
+
+	public static class MidTargetFinder extends TargetFinder {
+		public MidTargetFinder(String dna) {
+			super(dna, 600, 600);
+		}
+	}
+
+	public static class FarTargetFinder extends TargetFinder {
+		public FarTargetFinder(String dna) {
+			super(dna, 700, 700);
+		}
+	}
+
+	/* Counts true evaluations, so the count doesn't depend on wall time */
+	private static class CountingEvaluator implements Evaluator {
+		long evaluations = 0;
+
+		public void evaluate(List<? extends Evolver> generation) {
+			for (Evolver evolver : generation) {
+				evolver.simulateLife();
+			}
+			this.evaluations += generation.size();
+		}
+	}
+
+	private static class Problem {
+		final String name;
+		final Class<? extends Evolver> evolverType;
+		final String startingDna;
+		final int targetFitness;
+
+		Problem(String name, Class<? extends Evolver> evolverType, String startingDna, int targetFitness) {
+			this.name = name;
+			this.evolverType = evolverType;
+			this.startingDna = startingDna;
+			this.targetFitness = targetFitness;
+		}
+	}
+
+	private List<Problem> corpus() {
+		Random random = new Random(CORPUS_SEED);
+		List<Problem> corpus = new ArrayList<Problem>();
+		corpus.add(new Problem("targetNear", NearTargetFinder.class, randomDna(random, "awsd", 2000),
+				new NearTargetFinder("").getMaxFitness()));
+		corpus.add(new Problem("targetMid", MidTargetFinder.class, randomDna(random, "awsd", 2400),
+				new MidTargetFinder("").getMaxFitness()));
+		corpus.add(new Problem("targetFar", FarTargetFinder.class, randomDna(random, "awsd", 2800),
+				new FarTargetFinder("").getMaxFitness()));
+		corpus.add(new Problem("maze", MazeWalker.class, randomDna(random, "awsd", 4 * MazeWalker.getMaxFitness()),
+				MazeWalker.getMaxFitness()));
+		// the exact optimum is often out of reach, 98% of it reliably isn't
+		corpus.add(new Problem("knapsack", Knapsack.class, randomDna(random, "01", Knapsack.ITEMS),
+				Knapsack.getMaxFitness() * 98 / 100));
+		return corpus;
+	}
+
+	private static String randomDna(Random random, String bases, int length) {
+		char[] dna = new char[length];
+		for (int i = 0; i < length; i++) {
+			dna[i] = bases.charAt(random.nextInt(bases.length()));
+		}
+		return new String(dna);
+	}
+
+	@Test
+	public void testConvergence() throws IOException {
+		Properties results = new Properties();
+		for (Problem problem : corpus()) {
+			this.run(problem, results);
+		}
+		this.compareEvaluators(results);
+
+		if (Boolean.getBoolean("benchmark.record")) {
+			try (OutputStream out = new FileOutputStream(BASELINE)) {
+				results.store(out, "Convergence benchmark baseline, median of " + REPETITIONS + " runs");
+			}
+			System.out.println("Recorded baseline in " + BASELINE);
+			return;
+		}
+
+		File baselineFile = new File(BASELINE);
+		assertTrue("No baseline at " + BASELINE + ", record one with -Dbenchmark.record=true", baselineFile.exists());
+		Properties baseline = new Properties();
+		try (InputStream in = new FileInputStream(baselineFile)) {
+			baseline.load(in);
+		}
+
+		List<String> regressions = new ArrayList<String>();
+		for (Problem problem : corpus()) {
+			String solved = problem.name + ".solvedRuns";
+			if (baseline.containsKey(solved)
+					&& Long.parseLong(results.getProperty(solved)) < Long.parseLong(baseline.getProperty(solved))) {
+				regressions.add(solved + ": " + results.getProperty(solved) + " < " + baseline.getProperty(solved));
+			}
+			for (int m = 0; m < METRICS.length; m++) {
+				check(problem.name + "." + METRICS[m], TOLERANCES[m], SLACK[m], results, baseline, regressions);
+			}
+		}
+		check("workerPool.costPercent", COST_TOLERANCE, 0, results, baseline, regressions);
+		assertTrue("Convergence regressed:\n" + join(regressions), regressions.isEmpty());
+	}
+
+	private static void check(String key, double tolerance, long slack, Properties results, Properties baseline,
+			List<String> regressions) {
+		if (!baseline.containsKey(key)) {
+			return;
+		}
+		long expected = Long.parseLong(baseline.getProperty(key));
+		long actual = Long.parseLong(results.getProperty(key));
+		if (actual > expected * (1 + tolerance) + slack) {
+			regressions.add(key + ": " + actual + " > " + expected + " + " + (int) (tolerance * 100) + "%");
+		}
+	}
+
+	/*
+	 * Times the same generations with WorkerPoolEvaluator, one worker per
+	 * core, and with InProcessEvaluator. costPercent is the pool's time as a
+	 * percentage of the in-process time, so 100 means equal throughput.
+	 */
+	private void compareEvaluators(Properties results) {
+		Random random = new Random(CORPUS_SEED);
+		List<Evolver> generation = new ArrayList<Evolver>();
+		for (int i = 0; i < THROUGHPUT_POP_SIZE; i++) {
+			generation.add(new TargetFinder(randomDna(random, "awsd", THROUGHPUT_DNA_LENGTH)));
+		}
+
+		int workers = Runtime.getRuntime().availableProcessors();
+		WorkerPoolEvaluator pool = WorkerPoolEvaluator.forEvolverType(TargetFinder.class, workers);
+		long inProcess;
+		long pooled;
+		try {
+			inProcess = timeEvaluations(new InProcessEvaluator(), generation);
+			pooled = timeEvaluations(pool, generation);
+		} finally {
+			pool.close();
+		}
+
+		long costPercent = inProcess == 0 ? 0 : pooled * 100 / inProcess;
+		results.setProperty("workerPool.inProcessMillis", Long.toString(inProcess));
+		results.setProperty("workerPool.pooledMillis", Long.toString(pooled));
+		results.setProperty("workerPool.costPercent", Long.toString(costPercent));
+		System.out.println(String.format("%-12s workers %d  inProcessMillis %d  pooledMillis %d  costPercent %d",
+				"workerPool", workers, inProcess, pooled, costPercent));
+	}
+
+	private long timeEvaluations(Evaluator evaluator, List<Evolver> generation) {
+		// the first rounds start the workers and warm up the JIT on both sides
+		for (int r = 0; r < 3; r++) {
+			evaluator.evaluate(generation);
+		}
+		long[] samples = new long[REPETITIONS];
+		for (int r = 0; r < REPETITIONS; r++) {
+			long start = System.nanoTime();
+			evaluator.evaluate(generation);
+			samples[r] = (System.nanoTime() - start) / 1000000;
+		}
+		return median(samples);
+	}
+
+	private void run(Problem problem, Properties results) {
+		long[][] samples = new long[METRICS.length][REPETITIONS];
+		int solvedRuns = 0;
+
+		for (int r = 0; r < REPETITIONS; r++) {
+			System.gc();
+			List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP) {
+					pool.resetPeakUsage();
+					heapPools.add(pool);
+				}
+			}
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+
+			CountingEvaluator evaluator = new CountingEvaluator();
+			Evolution evolution = new Evolution(problem.evolverType, POP_SIZE, problem.startingDna, evaluator,
+					new Random(CORPUS_SEED + r));
+			while (evolution.getCurrentGeneration().get(0).getFitness() < problem.targetFitness
+					&& evolution.getGenerationCount() < MAX_GENERATIONS) {
+				evolution.evolve(1);
+			}
+
+			samples[0][r] = (System.nanoTime() - start) / 1000000;
+			samples[1][r] = evaluator.evaluations;
+			for (MemoryPoolMXBean pool : heapPools) {
+				samples[2][r] += pool.getPeakUsage().getUsed();
+			}
+			samples[3][r] = allocatedBytes() - allocatedBefore;
+			if (evolution.getCurrentGeneration().get(0).getFitness() >= problem.targetFitness) {
+				solvedRuns++;
+			}
+		}
+
+		StringBuilder line = new StringBuilder(String.format("%-12s solved %d/%d", problem.name, solvedRuns, REPETITIONS));
+		results.setProperty(problem.name + ".solvedRuns", Integer.toString(solvedRuns));
+		for (int m = 0; m < METRICS.length; m++) {
+			long median = median(samples[m]);
+			results.setProperty(problem.name + "." + METRICS[m], Long.toString(median));
+			line.append(String.format("  %s %d", METRICS[m], median));
+		}
+		// recorded for comparison only: it follows from two gated metrics, and a
+		// faster run that allocates the same would look like a regression
+		long allocationRate = median(samples[0]) == 0 ? 0 : median(samples[3]) * 1000 / median(samples[0]);
+		results.setProperty(problem.name + ".allocationRate", Long.toString(allocationRate));
+		line.append(String.format("  allocationRate %d B/s", allocationRate));
+		System.out.println(line);
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	private static long median(long[] samples) {
+		long[] sorted = samples.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static String join(List<String> lines) {
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append('\n');
+		}
+		return sb.toString();
+	}
+}
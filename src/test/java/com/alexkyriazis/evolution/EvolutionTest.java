@@ -2,7 +2,11 @@ package com.alexkyriazis.evolution;
 
 import static org.junit.Assert.*;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -69,6 +73,40 @@ public class EvolutionTest {
 		}catch(Exception e){}
 	}
 	
+	/* Remembers the DNA it was constructed with, as some evolvers do */
+	public static class DnaLengthEvolver extends TargetFinder {
+		final int constructedLength;
+
+		public DnaLengthEvolver(String dna) {
+			super(dna);
+			this.constructedLength = dna.length();
+		}
+	}
+
+	/* Bred children are constructed with their real DNA */
+	@Test
+	public void testChildConstructedWithDna() {
+		Evolution evolution = new Evolution(DnaLengthEvolver.class, POP_SIZE, DNA);
+		evolution.evolve(1);
+		for (Evolver evolver : evolution.getCurrentGeneration()) {
+			assertEquals(((DnaLengthEvolver) evolver).constructedLength, evolver.getDna().length());
+		}
+	}
+
+	/* Default parameters are used as given: without mutation or crossover, children are copies of parents */
+	@Test
+	public void testDefaultEvolutionParameters() {
+		evolutionTest.setDefaultEvolutionParameters(0.5, 0, 0.5, 0);
+		Set<String> parents = new HashSet<String>();
+		for (Evolver evolver : evolutionTest.getCurrentGeneration()) {
+			parents.add(evolver.getDna());
+		}
+		evolutionTest.evolve(1);
+		for (Evolver evolver : evolutionTest.getCurrentGeneration()) {
+			assertTrue(parents.contains(evolver.getDna()));
+		}
+	}
+
 	/*
 	 * We can't test short-term evolution reliably since it is probablistic
 	 * 
@@ -86,6 +124,19 @@ public class EvolutionTest {
 		assertTrue(endingFitness > startingFitness);
 	}
 	
+	/* Evolutions with the same seed evolve exactly the same way */
+	@Test
+	public void testSeededEvolution() {
+		Evolution first = new Evolution(TargetFinder.class, POP_SIZE, DNA, new InProcessEvaluator(), new Random(42));
+		Evolution second = new Evolution(TargetFinder.class, POP_SIZE, DNA, new InProcessEvaluator(), new Random(42));
+		first.evolve(GEN_NUM);
+		second.evolve(GEN_NUM);
+
+		for (int i = 0; i < POP_SIZE; i++) {
+			assertEquals(first.getCurrentGeneration().get(i).getDna(), second.getCurrentGeneration().get(i).getDna());
+		}
+	}
+
 	/*
 	 * No JUnit checking here. It displays the last generation in the console for a qualitative observation 
 	 */	
@@ -0,0 +1,113 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+public class GenerationSnapshotTest {
+
+	Evolution evolutionTest;
+
+	public final String DNA = "aswawaawawswadswdwdwwswswssswsdddwddwdwdswawadwawawdasaawawdaaaaadwadadadsadwawadwswswwsawsaswawsawsaadwads";
+	public final int GEN_NUM = 500;
+	public final int POP_SIZE = 10;
+	public final int HALL_OF_FAME_SIZE = 5;
+
+	@Before
+	public void init() {
+		evolutionTest = new Evolution(TargetFinder.class, POP_SIZE, DNA);
+		evolutionTest.setHallOfFameSize(HALL_OF_FAME_SIZE);
+	}
+
+	/* The snapshot mirrors the current generation */
+	@Test
+	public void testMatchesCurrentGeneration() {
+		evolutionTest.evolve(10);
+		GenerationSnapshot snapshot = evolutionTest.getSnapshot();
+		List<? extends Evolver> population = evolutionTest.getCurrentGeneration();
+
+		assertEquals(snapshot.getGeneration(), 10);
+		assertEquals(snapshot.size(), POP_SIZE);
+		for (int rank = 0; rank < POP_SIZE; rank++) {
+			assertEquals(snapshot.getDna(rank), population.get(rank).getDna());
+			assertEquals(snapshot.getFitness(rank), population.get(rank).getFitness());
+		}
+	}
+
+	/* A snapshot does not change once the evolution moves on */
+	@Test
+	public void testImmutable() {
+		GenerationSnapshot snapshot = evolutionTest.getSnapshot();
+		String bestDna = snapshot.getDna(0);
+		int bestFitness = snapshot.getBestFitness();
+
+		evolutionTest.evolve(GEN_NUM);
+
+		assertEquals(snapshot.getGeneration(), 0);
+		assertEquals(snapshot.getDna(0), bestDna);
+		assertEquals(snapshot.getBestFitness(), bestFitness);
+		assertNotSame(snapshot, evolutionTest.getSnapshot());
+	}
+
+	/* The hall of fame is bounded, sorted, free of copies and never worse than the current best */
+	@Test
+	public void testHallOfFame() {
+		int bestEver = Integer.MIN_VALUE;
+		for (int i = 0; i < GEN_NUM; i++) {
+			evolutionTest.evolve(1);
+			bestEver = Math.max(bestEver, evolutionTest.getSnapshot().getBestFitness());
+		}
+		List<GenerationSnapshot.Entry> hallOfFame = evolutionTest.getSnapshot().getHallOfFame();
+
+		assertEquals(hallOfFame.size(), HALL_OF_FAME_SIZE);
+		assertEquals(hallOfFame.get(0).getFitness(), bestEver);
+		for (int i = 1; i < hallOfFame.size(); i++) {
+			assertTrue(hallOfFame.get(i - 1).getFitness() >= hallOfFame.get(i).getFitness());
+		}
+		for (int i = 0; i < hallOfFame.size(); i++) {
+			for (int j = i + 1; j < hallOfFame.size(); j++) {
+				assertNotEquals(hallOfFame.get(i).getDna(), hallOfFame.get(j).getDna());
+			}
+		}
+	}
+
+	/* Another thread can read snapshots while the evolution runs */
+	@Test
+	public void testConcurrentReader() throws InterruptedException {
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final Thread evolver = new Thread(new Runnable() {
+			public void run() {
+				evolutionTest.evolve(GEN_NUM);
+			}
+		});
+		Thread reader = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (evolver.isAlive()) {
+						GenerationSnapshot snapshot = evolutionTest.getSnapshot();
+						assertEquals(snapshot.size(), POP_SIZE);
+						for (int rank = 1; rank < snapshot.size(); rank++) {
+							assertTrue(snapshot.getFitness(rank - 1) >= snapshot.getFitness(rank));
+							assertEquals(snapshot.getDna(rank).length(), DNA.length());
+						}
+					}
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		});
+		evolver.start();
+		reader.start();
+		evolver.join();
+		reader.join();
+
+		assertNull(failure.get());
+		assertEquals(evolutionTest.getSnapshot().getGeneration(), GEN_NUM);
+	}
+}
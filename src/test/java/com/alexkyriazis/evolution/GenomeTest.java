@@ -0,0 +1,123 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GenomeTest {
+
+	Random random;
+
+	public final int DNA_LENGTH = 10 * Genome.CHUNK + 123;
+	public final int SPLICES = 2000;
+
+	@Before
+	public void init() {
+		random = new Random(42);
+	}
+
+	private String randomDna(int length) {
+		char[] dna = new char[length];
+		for (int i = 0; i < length; i++) {
+			dna[i] = "awsd".charAt(random.nextInt(4));
+		}
+		return new String(dna);
+	}
+
+	/* A genome reads back exactly the DNA it was made from */
+	@Test
+	public void testOf() {
+		String dna = randomDna(DNA_LENGTH);
+		Genome genome = Genome.of(dna);
+
+		assertEquals(genome.length(), DNA_LENGTH);
+		assertEquals(genome.toString(), dna);
+		for (int i = 0; i < DNA_LENGTH; i += 97) {
+			assertEquals(genome.charAt(i), dna.charAt(i));
+		}
+	}
+
+	/* Splicing matches substring concatenation, including at the ends */
+	@Test
+	public void testSplice() {
+		String dna1 = randomDna(DNA_LENGTH);
+		String dna2 = randomDna(DNA_LENGTH);
+		Genome genome1 = Genome.of(dna1);
+		Genome genome2 = Genome.of(dna2);
+
+		int[] splicePoints = { 0, 1, Genome.CHUNK, Genome.CHUNK + 1, DNA_LENGTH / 2, DNA_LENGTH - 1, DNA_LENGTH };
+		for (int splicePoint : splicePoints) {
+			Genome spliced = Genome.splice(genome1, genome2, splicePoint);
+			assertEquals(spliced.toString(), dna1.substring(0, splicePoint) + dna2.substring(splicePoint));
+		}
+	}
+
+	/* Replacing bases only changes those bases and leaves the original untouched */
+	@Test
+	public void testReplace() {
+		String dna = randomDna(DNA_LENGTH);
+		Genome genome = Genome.of(dna);
+
+		int[] positions = { 0, 5, Genome.CHUNK - 1, Genome.CHUNK, DNA_LENGTH - 1 };
+		char[] bases = { 'x', 'y', 'z', 'x', 'y' };
+		Genome replaced = genome.replace(positions, bases, positions.length);
+
+		StringBuilder expected = new StringBuilder(dna);
+		for (int i = 0; i < positions.length; i++) {
+			expected.setCharAt(positions[i], bases[i]);
+		}
+		assertEquals(replaced.toString(), expected.toString());
+		assertEquals(genome.toString(), dna);
+	}
+
+	/* Repeated crossover keeps the rope correct and its depth bounded */
+	@Test
+	public void testRepeatedSplices() {
+		String dna1 = randomDna(DNA_LENGTH);
+		String dna2 = randomDna(DNA_LENGTH);
+		Genome genome1 = Genome.of(dna1);
+		Genome genome2 = Genome.of(dna2);
+
+		for (int i = 0; i < SPLICES; i++) {
+			int splicePoint = random.nextInt(DNA_LENGTH);
+			Genome splice1 = Genome.splice(genome1, genome2, splicePoint);
+			Genome splice2 = Genome.splice(genome2, genome1, splicePoint);
+			String flat1 = dna1.substring(0, splicePoint) + dna2.substring(splicePoint);
+			dna2 = dna2.substring(0, splicePoint) + dna1.substring(splicePoint);
+			dna1 = flat1;
+			genome1 = splice1;
+			genome2 = splice2;
+		}
+
+		assertEquals(genome1.toString(), dna1);
+		assertEquals(genome2.toString(), dna2);
+		assertTrue(genome1.depth() < 30);
+
+		// spliced genomes equal any other genome with the same bases
+		assertEquals(genome1, Genome.of(dna1));
+		assertEquals(genome1.hashCode(), dna1.hashCode());
+		assertNotEquals(genome1, genome2);
+	}
+
+	/* Visiting the chunks yields the same bases as the flat DNA, in order */
+	@Test
+	public void testForEachChunk() {
+		String dna1 = randomDna(DNA_LENGTH);
+		String dna2 = randomDna(DNA_LENGTH);
+		Genome spliced = Genome.splice(Genome.of(dna1), Genome.of(dna2), DNA_LENGTH / 3);
+
+		for (Genome genome : new Genome[] { Genome.of(dna1), spliced }) {
+			final StringBuilder visited = new StringBuilder();
+			genome.forEachChunk(new Genome.ChunkVisitor() {
+				public void visit(char[] chars, int length) {
+					assertTrue(length > 0 && length <= Genome.CHUNK);
+					visited.append(chars, 0, length);
+				}
+			});
+			assertEquals(visited.toString(), genome.toString());
+		}
+	}
+}
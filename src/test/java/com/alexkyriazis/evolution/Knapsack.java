@@ -0,0 +1,85 @@
+package com.alexkyriazis.evolution;
+
+import java.util.Random;
+
+public class Knapsack extends Evolver {
+
+	public static final int ITEMS = 350;
+	private static final long SEED = 20161018L;
+
+	private static final int[] WEIGHTS = new int[ITEMS];
+	private static final int[] VALUES = new int[ITEMS];
+	private static final int CAPACITY;
+	private static final int OPTIMUM;
+
+	static {
+		Random random = new Random(SEED);
+		int totalWeight = 0;
+		for (int i = 0; i < ITEMS; i++) {
+			WEIGHTS[i] = 1 + random.nextInt(50);
+			VALUES[i] = 1 + random.nextInt(100);
+			totalWeight += WEIGHTS[i];
+		}
+		CAPACITY = totalWeight / 2;
+
+		// classic dynamic programming solution, to know when evolution is done
+		int[] best = new int[CAPACITY + 1];
+		for (int i = 0; i < ITEMS; i++) {
+			for (int w = CAPACITY; w >= WEIGHTS[i]; w--) {
+				best[w] = Math.max(best[w], best[w - WEIGHTS[i]] + VALUES[i]);
+			}
+		}
+		OPTIMUM = best[CAPACITY];
+	}
+
+	private int item;
+	private int weight;
+	private int value;
+
+	/**
+	 * Creates a knapsack. Its DNA has one base per item: '1' packs the item,
+	 * '0' leaves it out. Overweight knapsacks are penalized by how much they
+	 * are over.
+	 *
+	 * @param The
+	 *            DNA of this particular knapsack.
+	 */
+	public Knapsack(String dna) {
+		super(dna);
+	}
+
+	/**
+	 * @return the value of the best possible knapsack.
+	 */
+	public static int getMaxFitness() {
+		return OPTIMUM;
+	}
+
+	@Override
+	protected void defineBehaviour() {
+		this.defineAction('0', new Action() {
+			public void act() {
+				Knapsack.this.item++;
+			}
+		});
+		this.defineAction('1', new Action() {
+			public void act() {
+				Knapsack.this.weight += WEIGHTS[Knapsack.this.item];
+				Knapsack.this.value += VALUES[Knapsack.this.item];
+				Knapsack.this.item++;
+			}
+		});
+	}
+
+	@Override
+	protected int computeFitness() {
+		return this.weight <= CAPACITY ? this.value : CAPACITY - this.weight;
+	}
+
+	@Override
+	protected void reset() {
+		this.item = 0;
+		this.weight = 0;
+		this.value = 0;
+	}
+}
@@ -0,0 +1,102 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+public class MappedEvolutionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	MappedEvolution evolutionTest;
+
+	public final String DNA = "aswawaawawswadswdwdwwswswssswsdddwddwdwdswawadwawawdasaawawdaaaaadwadadadsadwawadwswswwsawsaswawsawsaadwads";
+	public final int GEN_NUM = 200;
+	public final int POP_SIZE = 101;
+	public final int WORKING_SET_SIZE = 16;
+
+	@Before
+	public void init() throws IOException {
+		evolutionTest = new MappedEvolution(TargetFinder.class, POP_SIZE, DNA, folder.getRoot(), WORKING_SET_SIZE,
+				new InProcessEvaluator());
+	}
+
+	@After
+	public void cleanup() {
+		evolutionTest.close();
+	}
+
+	/* The best individuals come back ordered, with the right DNA length and fitness */
+	@Test
+	public void testGetBest() {
+		List<Evolver> best = evolutionTest.getBest(POP_SIZE + 10);
+		assertEquals(best.size(), POP_SIZE);
+
+		for (int i = 0; i < best.size(); i++) {
+			Evolver evolver = best.get(i);
+			assertEquals(evolver.getDna().length(), DNA.length());
+			if (i > 0) {
+				assertTrue(best.get(i - 1).getFitness() >= evolver.getFitness());
+			}
+			TargetFinder copy = new TargetFinder(evolver.getDna());
+			copy.simulateLife();
+			assertEquals(copy.getFitness(), evolver.getFitness());
+		}
+	}
+
+	/* Tests that the evolution keeps track of generation count */
+	@Test
+	public void testEvolutionCount() {
+		assertEquals(evolutionTest.getGenerationCount(), 0);
+		evolutionTest.evolve(GEN_NUM);
+		assertEquals(evolutionTest.getGenerationCount(), GEN_NUM);
+	}
+
+	/* Fitness should increase over time, as with the in-memory evolution */
+	@Test
+	public void testEvolutionImprovementQuantitative() {
+		int startingFitness = evolutionTest.getBest(1).get(0).getFitness();
+		evolutionTest.evolve(GEN_NUM);
+		int endingFitness = evolutionTest.getBest(1).get(0).getFitness();
+
+		assertTrue(endingFitness > startingFitness);
+	}
+
+	/* Population files are removed on close */
+	@Test
+	public void testClose() {
+		assertTrue(folder.getRoot().listFiles().length > 0);
+		evolutionTest.close();
+		assertEquals(folder.getRoot().listFiles().length, 0);
+	}
+
+	/* DNA with bases the evolver doesn't know can't be stored */
+	@Test
+	public void testUndefinedBase() throws IOException {
+		try {
+			new MappedEvolution(TargetFinder.class, POP_SIZE, "awsdx", folder.getRoot());
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/* Evolver types that can't be created are rejected up front */
+	@Test
+	public void testUncreatableEvolver() throws IOException {
+		try {
+			new MappedEvolution(Evolver.class, POP_SIZE, DNA, folder.getRoot());
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
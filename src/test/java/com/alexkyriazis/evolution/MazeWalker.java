@@ -0,0 +1,148 @@
+package com.alexkyriazis.evolution;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MazeWalker extends Evolver {
+
+	public static final int SIZE = 25;
+	private static final long SEED = 20161018L;
+
+	// true where there is a wall. The maze is generated once from a fixed seed.
+	private static final boolean[][] WALLS = generateMaze(SIZE, SEED);
+	private static final int[][] DISTANCE_TO_EXIT = distancesFrom(SIZE - 2, SIZE - 2);
+
+	private int x;
+	private int y;
+
+	/**
+	 * Creates a maze walker. An object that starts in the top left corner of a
+	 * maze and is assessed by how close it ends up to the bottom right corner.
+	 * Once it reaches the exit it stays there.
+	 *
+	 * @param The
+	 *            DNA of this particular maze walker.
+	 */
+	public MazeWalker(String dna) {
+		super(dna);
+	}
+
+	/**
+	 * @return the best possible fitness, reached when standing on the exit.
+	 *         Equal to the length of the shortest path through the maze.
+	 */
+	public static int getMaxFitness() {
+		return DISTANCE_TO_EXIT[1][1];
+	}
+
+	private void move(int dx, int dy) {
+		if (DISTANCE_TO_EXIT[this.x][this.y] == 0 || WALLS[this.x + dx][this.y + dy]) {
+			return;
+		}
+		this.x += dx;
+		this.y += dy;
+	}
+
+	@Override
+	protected void defineBehaviour() {
+		this.defineAction('a', new Action() {
+			public void act() {
+				MazeWalker.this.move(-1, 0);
+			}
+		});
+		this.defineAction('d', new Action() {
+			public void act() {
+				MazeWalker.this.move(1, 0);
+			}
+		});
+		this.defineAction('w', new Action() {
+			public void act() {
+				MazeWalker.this.move(0, 1);
+			}
+		});
+		this.defineAction('s', new Action() {
+			public void act() {
+				MazeWalker.this.move(0, -1);
+			}
+		});
+	}
+
+	@Override
+	protected int computeFitness() {
+		return getMaxFitness() - DISTANCE_TO_EXIT[this.x][this.y];
+	}
+
+	@Override
+	protected void reset() {
+		this.x = 1;
+		this.y = 1;
+	}
+
+	/*
+	 * Carves a perfect maze with a randomized depth first search over the odd
+	 * cells of the grid.
+	 */
+	private static boolean[][] generateMaze(int size, long seed) {
+		Random random = new Random(seed);
+		boolean[][] walls = new boolean[size][size];
+		for (boolean[] column : walls) {
+			Arrays.fill(column, true);
+		}
+		int[][] directions = { { 2, 0 }, { -2, 0 }, { 0, 2 }, { 0, -2 } };
+		ArrayDeque<int[]> stack = new ArrayDeque<int[]>();
+		walls[1][1] = false;
+		stack.push(new int[] { 1, 1 });
+
+		while (!stack.isEmpty()) {
+			int[] cell = stack.peek();
+			int[] order = { 0, 1, 2, 3 };
+			for (int i = order.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			boolean carved = false;
+			for (int d : order) {
+				int nx = cell[0] + directions[d][0];
+				int ny = cell[1] + directions[d][1];
+				if (nx > 0 && ny > 0 && nx < size - 1 && ny < size - 1 && walls[nx][ny]) {
+					walls[cell[0] + directions[d][0] / 2][cell[1] + directions[d][1] / 2] = false;
+					walls[nx][ny] = false;
+					stack.push(new int[] { nx, ny });
+					carved = true;
+					break;
+				}
+			}
+			if (!carved) {
+				stack.pop();
+			}
+		}
+		return walls;
+	}
+
+	private static int[][] distancesFrom(int exitX, int exitY) {
+		int[][] distance = new int[SIZE][SIZE];
+		for (int[] column : distance) {
+			Arrays.fill(column, -1);
+		}
+		ArrayDeque<int[]> queue = new ArrayDeque<int[]>();
+		distance[exitX][exitY] = 0;
+		queue.add(new int[] { exitX, exitY });
+
+		while (!queue.isEmpty()) {
+			int[] cell = queue.poll();
+			int[][] neighbours = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+			for (int[] n : neighbours) {
+				int nx = cell[0] + n[0];
+				int ny = cell[1] + n[1];
+				if (!WALLS[nx][ny] && distance[nx][ny] == -1) {
+					distance[nx][ny] = distance[cell[0]][cell[1]] + 1;
+					queue.add(new int[] { nx, ny });
+				}
+			}
+		}
+		return distance;
+	}
+}
@@ -0,0 +1,122 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+public class RunLogTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	Evolution evolutionTest;
+
+	public final String DNA = "aswawaawawswadswdwdwwswswssswsdddwddwdwdswawadwawawdasaawawdaaaaadwadadadsadwawadwswswwsawsaswawsawsaadwads";
+	public final int GEN_NUM = 50;
+	public final int POP_SIZE = 10;
+
+	@Before
+	public void init() {
+		evolutionTest = new Evolution(TargetFinder.class, POP_SIZE, DNA);
+	}
+
+	private List<String> readCsv(File directory, String name) throws IOException {
+		return Files.readAllLines(new File(directory, name).toPath(), StandardCharsets.UTF_8);
+	}
+
+	private File logAndConvert(boolean compress) throws IOException {
+		File log = folder.newFile();
+		RunLog runLog = new RunLog(log, compress);
+		evolutionTest.setRunLog(runLog);
+		evolutionTest.evolve(GEN_NUM);
+		runLog.close();
+		assertEquals(runLog.getDroppedCount(), 0);
+
+		File csv = folder.newFolder();
+		RunLogReader.toCsv(log, csv);
+		return csv;
+	}
+
+	/* Every generation, including the one current when the log was attached, is recorded */
+	@Test
+	public void testRoundTrip() throws IOException {
+		File csv = logAndConvert(false);
+
+		List<String> generations = readCsv(csv, "generations.csv");
+		assertEquals(generations.size(), GEN_NUM + 2);
+		assertTrue(generations.get(1).startsWith("0," + POP_SIZE + ","));
+
+		List<String> elites = readCsv(csv, "elites.csv");
+		assertEquals(elites.size(), (GEN_NUM + 1) * RunLog.DEFAULT_ELITE_COUNT + 1);
+		String best = elites.get(elites.size() - RunLog.DEFAULT_ELITE_COUNT);
+		assertTrue(best.endsWith("," + evolutionTest.getCurrentGeneration().get(0).getDna()));
+
+		assertEquals(readCsv(csv, "histograms.csv").size(), (GEN_NUM + 1) * RunLog.DEFAULT_HISTOGRAM_BUCKETS + 1);
+		assertEquals(readCsv(csv, "lineage.csv").size(), (GEN_NUM + 1) * POP_SIZE + 1);
+	}
+
+	/* Compressed logs read back the same way */
+	@Test
+	public void testCompressed() throws IOException {
+		File csv = logAndConvert(true);
+		assertEquals(readCsv(csv, "generations.csv").size(), GEN_NUM + 2);
+	}
+
+	/* Lineage points at ranks of the previous generation */
+	@Test
+	public void testLineage() throws IOException {
+		File csv = logAndConvert(false);
+		List<String> lineage = readCsv(csv, "lineage.csv");
+
+		for (String line : lineage.subList(1, lineage.size())) {
+			String[] fields = line.split(",");
+			int parentRank = Integer.parseInt(fields[2]);
+			if (fields[0].equals("0")) {
+				assertEquals(parentRank, -1);
+			} else {
+				assertTrue(parentRank >= 0 && parentRank < POP_SIZE);
+			}
+		}
+	}
+
+	/* A failing writer is reported instead of blocking the evolution or close() */
+	@Test(timeout = 10000)
+	public void testCloseAfterWriteError() throws IOException {
+		RunLog runLog = new RunLog(folder.newFile(), false, 1, RunLog.DEFAULT_HISTOGRAM_BUCKETS, 1);
+		TargetFinder broken = new TargetFinder(DNA) {
+			@Override
+			Genome getGenome() {
+				return null;
+			}
+		};
+		runLog.logGeneration(0, Collections.singletonList(broken));
+
+		// keep the queue full until the dead writer is noticed
+		boolean failed = false;
+		for (int generation = 1; !failed; generation++) {
+			try {
+				runLog.logGeneration(generation, evolutionTest.getCurrentGeneration());
+			} catch (IllegalStateException e) {
+				failed = true;
+			}
+		}
+
+		try {
+			runLog.close();
+			fail();
+		} catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+public class SurrogateEvaluatorTest {
+
+	SurrogateEvaluator surrogate;
+
+	public final String DNA = "aswawaawawswadswdwdwwswswssswsdddwddwdwdswawadwawawdasaawawdaaaaadwadadadsadwawadwswswwsawsaswawsawsaadwads";
+	public final int GEN_NUM = 500;
+	public final int POP_SIZE = 10;
+
+	@Before
+	public void init() {
+		surrogate = new SurrogateEvaluator(new InProcessEvaluator(), 0.3, 0.1);
+	}
+
+	private List<TargetFinder> createGeneration(int size) {
+		List<TargetFinder> generation = new ArrayList<TargetFinder>();
+		for (int i = 0; i < size; i++) {
+			TargetFinder evolver = new TargetFinder(DNA);
+			evolver.mutate(0.5, false);
+			generation.add(evolver);
+		}
+		return generation;
+	}
+
+	/* Nothing is predicted until the archive is warm */
+	@Test
+	public void testWarmUp() {
+		List<TargetFinder> generation = createGeneration(SurrogateEvaluator.DEFAULT_MIN_SAMPLES - 1);
+		surrogate.evaluate(generation);
+
+		assertEquals(surrogate.getPredictionCount(), 0);
+		for (TargetFinder evolver : generation) {
+			TargetFinder copy = new TargetFinder(evolver.getDna());
+			copy.simulateLife();
+			assertEquals(copy.getFitness(), evolver.getFitness());
+		}
+	}
+
+	/* Once warm, most of a generation is predicted rather than evaluated */
+	@Test
+	public void testSkipsEvaluations() {
+		surrogate.evaluate(createGeneration(SurrogateEvaluator.DEFAULT_MIN_SAMPLES));
+		long warmUpEvaluations = surrogate.getTrueEvaluationCount();
+
+		surrogate.evaluate(createGeneration(100));
+
+		assertTrue(surrogate.getTrueEvaluationCount() - warmUpEvaluations >= 30);
+		assertTrue(surrogate.getPredictionCount() > 0);
+		assertEquals(surrogate.getTrueEvaluationCount() + surrogate.getPredictionCount(),
+				SurrogateEvaluator.DEFAULT_MIN_SAMPLES + 100);
+	}
+
+	/* The fittest individual of a generation is never a prediction */
+	@Test
+	public void testBestIsTrulyEvaluated() {
+		surrogate.evaluate(createGeneration(SurrogateEvaluator.DEFAULT_MIN_SAMPLES));
+
+		for (int i = 0; i < 20; i++) {
+			List<TargetFinder> generation = createGeneration(100);
+			surrogate.evaluate(generation);
+
+			TargetFinder best = generation.get(0);
+			for (TargetFinder evolver : generation) {
+				if (evolver.getFitness() > best.getFitness()) {
+					best = evolver;
+				}
+			}
+			TargetFinder copy = new TargetFinder(best.getDna());
+			copy.simulateLife();
+			assertEquals(copy.getFitness(), best.getFitness());
+		}
+	}
+
+	/* Evolution still makes progress when most evaluations are skipped */
+	@Test
+	public void testEvolutionImprovement() {
+		Evolution evolution = new Evolution(TargetFinder.class, POP_SIZE, DNA, surrogate);
+		int startingFitness = evolution.getCurrentGeneration().get(0).getFitness();
+		evolution.evolve(GEN_NUM);
+
+		TargetFinder best = new TargetFinder(evolution.getCurrentGeneration().get(0).getDna());
+		best.simulateLife();
+		assertTrue(best.getFitness() > startingFitness);
+		assertTrue(surrogate.getPredictionCount() > 0);
+	}
+
+	/* Seeded evolutions stay reproducible when the surrogate samples individuals */
+	@Test
+	public void testReproducible() {
+		Evolution first = new Evolution(TargetFinder.class, POP_SIZE, DNA, surrogate, new Random(7));
+		SurrogateEvaluator other = new SurrogateEvaluator(new InProcessEvaluator(), 0.3, 0.1);
+		Evolution second = new Evolution(TargetFinder.class, POP_SIZE, DNA, other, new Random(7));
+		first.evolve(GEN_NUM);
+		second.evolve(GEN_NUM);
+
+		assertEquals(surrogate.getTrueEvaluationCount(), other.getTrueEvaluationCount());
+		for (int i = 0; i < POP_SIZE; i++) {
+			assertEquals(first.getCurrentGeneration().get(i).getDna(), second.getCurrentGeneration().get(i).getDna());
+		}
+	}
+
+	/* Make sure the surrogate complains at incorrect parameters */
+	@Test
+	public void testOutOfBounds() {
+		try {
+			new SurrogateEvaluator(new InProcessEvaluator(), 0, 0.1);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new SurrogateEvaluator(new InProcessEvaluator(), 0.5, 0.1, 3, 5, 4, 4);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -11,6 +11,9 @@ public class TargetFinder extends Evolver {
 	private static final int TARGET_X = 500;
 	private static final int TARGET_Y = 500;
 
+	private final int targetX;
+	private final int targetY;
+
 	/**
 	 * Creates a target finder. An object that is assessed by its proximity to a
 	 * set point.
@@ -19,7 +22,32 @@ public class TargetFinder extends Evolver {
 	 *            DNA of this particular target finder.
 	 */
 	public TargetFinder(String dna) {
+		this(dna, TARGET_X, TARGET_Y);
+	}
+
+	/**
+	 * Creates a target finder that heads for the given point instead of the
+	 * default one.
+	 * 
+	 * @param The
+	 *            DNA of this particular target finder.
+	 * 
+	 * @param targetX, targetY:
+	 *            the point to head for.
+	 */
+	protected TargetFinder(String dna, int targetX, int targetY) {
 		super(dna);
+		this.targetX = targetX;
+		this.targetY = targetY;
+	}
+
+	/**
+	 * Returns the best possible fitness, reached when standing on the target.
+	 * 
+	 * @return the distance from the start to the target.
+	 */
+	public int getMaxFitness() {
+		return computeDistance(START_X, START_Y, this.targetX, this.targetY);
 	}
 
 	/**
@@ -64,8 +92,8 @@ public class TargetFinder extends Evolver {
 
 	@Override
 	protected int computeFitness() {
-		return computeDistance(START_X, START_Y, TARGET_X, TARGET_Y)
-				- computeDistance((int) this.position.getX(), (int) this.position.getY(), TARGET_X, TARGET_Y);
+		return computeDistance(START_X, START_Y, this.targetX, this.targetY)
+				- computeDistance((int) this.position.getX(), (int) this.position.getY(), this.targetX, this.targetY);
 	}
 
 	@Override
@@ -0,0 +1,114 @@
+package com.alexkyriazis.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alexkyriazis.evolution.TargetFinder;
+
+public class WorkerPoolEvaluatorTest {
+
+	WorkerPoolEvaluator pool;
+
+	public final String DNA = "aswawaawawswadswdwdwwswswssswsdddwddwdwdswawadwawawdasaawawdaaaaadwadadadsadwawadwswswwsawsaswawsawsaadwads";
+	public final int NUM_WORKERS = 2;
+	public final int POP_SIZE = 200;
+
+	/* Never answers, to simulate a worker that hangs instead of crashing */
+	public static class StalledEvolver extends TargetFinder {
+		public StalledEvolver(String dna) {
+			super(dna);
+		}
+
+		@Override
+		protected void reset() {
+			while (true) {
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+	}
+
+	@Before
+	public void init() {
+		pool = WorkerPoolEvaluator.forEvolverType(TargetFinder.class, NUM_WORKERS);
+	}
+
+	@After
+	public void cleanup() {
+		pool.close();
+	}
+
+	/* Fitness computed by the workers must match fitness computed in-process */
+	@Test
+	public void testMatchesInProcess() {
+		List<TargetFinder> remote = new ArrayList<TargetFinder>();
+		List<TargetFinder> local = new ArrayList<TargetFinder>();
+
+		for (int i = 0; i < POP_SIZE; i++) {
+			TargetFinder evolver = new TargetFinder(DNA);
+			evolver.mutate(0.5, false);
+			remote.add(evolver);
+			local.add(new TargetFinder(evolver.getDna()));
+		}
+
+		pool.evaluate(remote);
+		new InProcessEvaluator().evaluate(local);
+
+		for (int i = 0; i < POP_SIZE; i++) {
+			assertEquals(local.get(i).getFitness(), remote.get(i).getFitness());
+		}
+	}
+
+	/* The pool can be reused across generations of an evolution */
+	@Test
+	public void testEvolution() {
+		Evolution evolution = new Evolution(TargetFinder.class, 10, DNA, pool);
+		evolution.evolve(20);
+		assertEquals(evolution.getGenerationCount(), 20);
+
+		TargetFinder best = new TargetFinder(evolution.getCurrentGeneration().get(0).getDna());
+		best.simulateLife();
+		assertEquals(best.getFitness(), evolution.getCurrentGeneration().get(0).getFitness());
+	}
+
+	/* Workers that keep dying must surface as an error instead of hanging */
+	@Test
+	public void testFailingWorker() {
+		List<String> command = Arrays.asList(System.getProperty("java.home") + "/bin/java", "-cp",
+				System.getProperty("java.class.path"), EvaluationWorker.class.getName(), "does.not.Exist");
+		WorkerPoolEvaluator failing = new WorkerPoolEvaluator(command, 1);
+		try {
+			failing.evaluate(Arrays.asList(new TargetFinder(DNA)));
+			fail();
+		} catch (IllegalStateException e) {
+		} finally {
+			failing.close();
+		}
+	}
+
+	/* Workers that stop answering are killed and restarted like crashed ones */
+	@Test(timeout = 30000)
+	public void testStalledWorker() {
+		List<String> command = Arrays.asList(System.getProperty("java.home") + "/bin/java", "-cp",
+				System.getProperty("java.class.path"), EvaluationWorker.class.getName(),
+				StalledEvolver.class.getName());
+		WorkerPoolEvaluator stalled = new WorkerPoolEvaluator(command, 1, WorkerPoolEvaluator.DEFAULT_PIPELINE_DEPTH,
+				500);
+		try {
+			stalled.evaluate(Arrays.asList(new TargetFinder(DNA)));
+			fail();
+		} catch (IllegalStateException e) {
+		} finally {
+			stalled.close();
+		}
+	}
+}